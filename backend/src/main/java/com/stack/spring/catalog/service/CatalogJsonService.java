@@ -0,0 +1,115 @@
+package com.stack.spring.catalog.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stack.spring.catalog.snapshot.CatalogSnapshot;
+import com.stack.spring.dto.FieldSet;
+import com.stack.spring.dto.ProductField;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The full catalog as ready-to-send JSON, plain and gzipped, rendered once per
+ * {@link CatalogSnapshot#contentVersion() content version} and {@link FieldSet}
+ * instead of once per request. Only the most requested field sets are kept.
+ * <p>
+ * Stock levels change with every sale, so they are not part of it: {@link #stock()}
+ * renders just the stock per product, which is small enough to redo per version.
+ * A render happens outside any lock; requests arriving meanwhile get the previous
+ * rendering rather than waiting or rendering the same thing again.
+ */
+@Service
+public class CatalogJsonService {
+
+    /** Serialized catalog; the ETag is a hash of the JSON, so it is the same on every node. */
+    public record Rendered(long version, String etag, byte[] json, byte[] gzip) {}
+
+    private final CatalogService catalog;
+    private final ObjectMapper objectMapper;
+    private final Cache<FieldSet, Rendered> rendered;
+    private final Set<FieldSet> rendering = ConcurrentHashMap.newKeySet();
+    private volatile Rendered stock;
+
+    public CatalogJsonService(CatalogService catalog, ObjectMapper objectMapper,
+                              @Value("${app.catalog-json.max-field-sets:8}") long maxFieldSets) {
+        this.catalog = catalog;
+        this.objectMapper = objectMapper;
+        this.rendered = Caffeine.newBuilder().maximumSize(maxFieldSets).build();
+    }
+
+    /**
+     * The current catalog with only {@code fields}, which must not include stock, or
+     * null while the snapshot is still loading.
+     */
+    public Rendered current(FieldSet fields) {
+        if (fields.contains(ProductField.STOCK_QUANTITY)) {
+            throw new IllegalArgumentException("Stock is served by stock()");
+        }
+        CatalogSnapshot snapshot = catalog.current();
+        if (snapshot == null) return null;
+        Rendered r = rendered.getIfPresent(fields);
+        if (r != null && r.version() >= snapshot.contentVersion()) return r;
+        if (r != null && !rendering.add(fields)) return r; // being rendered by another request
+        try {
+            byte[] json = serialize(fields.view(snapshot.summaries()));
+            Rendered fresh = new Rendered(snapshot.contentVersion(), etag(json), json, gzip(json));
+            return rendered.asMap().merge(fields, fresh, (old, neu) -> old.version() >= neu.version() ? old : neu);
+        } finally {
+            if (r != null) rendering.remove(fields);
+        }
+    }
+
+    /** Units in stock as {@code {"<id>": n, ...}}, or null while the snapshot is still loading. */
+    public Rendered stock() {
+        CatalogSnapshot snapshot = catalog.current();
+        if (snapshot == null) return null;
+        Rendered r = stock;
+        if (r != null && r.version() >= snapshot.version()) return r;
+        byte[] json = serialize(snapshot.stockById());
+        Rendered fresh = new Rendered(snapshot.version(), etag(json), json, gzip(json));
+        // a slower render of an older version must not replace a newer one
+        synchronized (this) {
+            if (stock == null || stock.version() < fresh.version()) stock = fresh;
+            return stock;
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize catalog", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String etag(byte[] data) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.stack.spring.catalog.service;
+
+import com.stack.spring.catalog.snapshot.CatalogSnapshot;
+import com.stack.spring.event.ProductChangeApplier;
+import com.stack.spring.event.ProductChangedEvent;
+import com.stack.spring.model.Product;
+import com.stack.spring.repo.ProductRepo;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the current {@link CatalogSnapshot} that listing, search and the full
+ * catalog endpoint read from.
+ * <p>
+ * Changed products are re-read and folded into a new snapshot by a
+ * {@link ProductChangeApplier}, which replaces the old one in one volatile write.
+ * A burst of checkouts costs a few rebuilds (and reads) rather than one each.
+ */
+@Service
+public class CatalogService {
+
+    private volatile CatalogSnapshot snapshot; // null until first loaded
+    private long version; // only touched on the applier thread
+
+    private final ProductChangeApplier changes;
+
+    public CatalogService(ProductRepo productRepo) {
+        this.changes = new ProductChangeApplier("catalog-snapshot", productRepo, this::load, this::apply);
+    }
+
+    /** The current snapshot, or null while the app is still starting. */
+    public CatalogSnapshot current() {
+        return snapshot;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() throws InterruptedException {
+        changes.load();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        changes.enqueue(event);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        changes.shutdown();
+    }
+
+    private void load(List<Product> products) {
+        snapshot = CatalogSnapshot.of(products, ++version);
+    }
+
+    private void apply(Map<Integer, Product> changed) {
+        snapshot = snapshot.apply(changed, ++version);
+    }
+}
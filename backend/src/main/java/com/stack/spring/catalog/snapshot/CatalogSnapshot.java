@@ -0,0 +1,543 @@
+package com.stack.spring.catalog.snapshot;
+
+import com.stack.spring.dto.ProductFilter;
+import com.stack.spring.dto.ProductSort;
+import com.stack.spring.dto.ProductSummary;
+import com.stack.spring.facet.index.PriceBuckets;
+import com.stack.spring.model.Product;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable, column-per-field copy of the {@link ProductSummary} fields. Rows are kept
+ * in id order; prices are {@code long} cents, release dates epoch days, brand and
+ * category dictionary codes, and names live in one shared UTF-8 byte array, so a
+ * SKU costs a few primitive slots plus its raw name instead of an entity with a
+ * dozen objects hanging off it.
+ * <p>
+ * Each listing sort has a precomputed row permutation in {@code (key, id)} order, and
+ * each brand, category and availability value a bitmap of its rows, so a filtered page
+ * only looks at the rows that match. {@link #apply} builds the next snapshot from this one in linear time; readers
+ * holding the old one are unaffected.
+ */
+public final class CatalogSnapshot {
+
+    // nulls sort last, as in Postgres' default ascending order
+    private static final long NULL_PRICE = Long.MAX_VALUE;
+    private static final int NULL_DAY = Integer.MAX_VALUE;
+    // at most 1 row in this many matching: sort the matches rather than walk the permutation
+    private static final int SPARSE = 64;
+
+    public static final CatalogSnapshot EMPTY = of(List.of(), 0);
+
+    private final long version;
+    private final long contentVersion;
+    private final int size;
+    private final int[] ids;
+    private final StringColumn names;
+    private final long[] prices;
+    private final int[] stock;
+    private final int[] releaseDays;
+    private final boolean[] available;
+    private final int[] brands;
+    private final int[] categories;
+    private final Dictionary brandDict;
+    private final Dictionary categoryDict;
+
+    private final int[] byPrice;
+    private final int[] byReleaseDate;
+    private final int[] byName;
+
+    private final FacetRows facetRows;
+
+    // facetRows: the base snapshot's, if rows and their facet values are the same
+    private CatalogSnapshot(Builder b, long version, long contentVersion,
+                            int[] byPrice, int[] byReleaseDate, int[] byName, FacetRows facetRows) {
+        this.version = version;
+        this.contentVersion = contentVersion;
+        this.size = b.size;
+        this.ids = b.ids;
+        this.names = b.names.build();
+        this.prices = b.prices;
+        this.stock = b.stock;
+        this.releaseDays = b.releaseDays;
+        this.available = b.available;
+        this.brands = b.brands;
+        this.categories = b.categories;
+        this.brandDict = b.brandDict;
+        this.categoryDict = b.categoryDict;
+        this.byPrice = byPrice;
+        this.byReleaseDate = byReleaseDate;
+        this.byName = byName;
+        this.facetRows = facetRows != null ? facetRows : new FacetRows(this);
+    }
+
+    /** Snapshot of {@code products} (any order, unique ids). */
+    public static CatalogSnapshot of(Collection<Product> products, long version) {
+        Product[] sorted = products.toArray(Product[]::new);
+        Arrays.sort(sorted, Comparator.comparingInt(Product::getId));
+        Builder b = new Builder(sorted.length, null, new Dictionary(), new Dictionary());
+        for (Product p : sorted) b.add(p);
+
+        int[] byPrice = identity(b.size);
+        int[] byReleaseDate = identity(b.size);
+        int[] byName = identity(b.size);
+        sort(byPrice, b.order(ProductSort.PRICE));
+        sort(byReleaseDate, b.order(ProductSort.RELEASE_DATE));
+        sort(byName, b.order(ProductSort.NAME));
+        return new CatalogSnapshot(b, version, version, byPrice, byReleaseDate, byName, null);
+    }
+
+    /**
+     * The next snapshot: {@code changes} maps product id to its new state, or to
+     * null if it was deleted.
+     */
+    public CatalogSnapshot apply(Map<Integer, Product> changes, long version) {
+        int[] changed = changes.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        boolean stockOnly = true;
+        for (int id : changed) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            Product p = changes.get(id);
+            stockOnly &= at >= 0 && p != null && sameExceptStock(at, p);
+        }
+        Builder b = new Builder(size + changed.length, this, new Dictionary(brandDict), new Dictionary(categoryDict));
+
+        // unchanged runs between changed ids are block-copied; old rows that changed are dropped
+        int[] rowMap = new int[size]; // old row -> new row, -1 if dropped
+        int[] addedRows = new int[changed.length];
+        int added = 0;
+        int from = 0;
+        for (int id : changed) {
+            int at = Arrays.binarySearch(ids, from, size, id);
+            int end = at >= 0 ? at : -at - 1;
+            copyRun(b, rowMap, from, end);
+            if (at >= 0) rowMap[at] = -1;
+            from = at >= 0 ? at + 1 : end;
+            Product p = changes.get(id);
+            if (p != null) addedRows[added++] = b.add(p);
+        }
+        copyRun(b, rowMap, from, size);
+        int[] newRows = Arrays.copyOf(addedRows, added);
+        return new CatalogSnapshot(b, version, stockOnly ? contentVersion : version,
+                merge(byPrice, rowMap, newRows, b.order(ProductSort.PRICE), b.size),
+                merge(byReleaseDate, rowMap, newRows, b.order(ProductSort.RELEASE_DATE), b.size),
+                merge(byName, rowMap, newRows, b.order(ProductSort.NAME), b.size),
+                stockOnly ? facetRows : null); // same rows in the same places
+    }
+
+    private void copyRun(Builder b, int[] rowMap, int from, int to) {
+        int first = b.copy(this, from, to - from);
+        for (int row = from; row < to; row++) rowMap[row] = first + row - from;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /** The version of the last change to anything but stock levels. */
+    public long contentVersion() {
+        return contentVersion;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** The product with {@code id}, or null. */
+    public ProductSummary summary(int id) {
+        int row = Arrays.binarySearch(ids, 0, size, id);
+        return row < 0 ? null : summaryAt(row);
+    }
+
+    /** Every product, in id order. */
+    public List<ProductSummary> summaries() {
+        List<ProductSummary> out = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) out.add(summaryAt(row));
+        return out;
+    }
+
+    /**
+     * Up to {@code limit} products matching {@code filter} in {@code (sort, id)} order,
+     * starting strictly after {@code (afterValue, afterId)} when those are given.
+     *
+     * @throws IllegalArgumentException if the filter's price bucket is malformed
+     */
+    public List<ProductSummary> page(ProductFilter filter, ProductSort sort, boolean desc,
+                              Comparable<?> afterValue, Integer afterId, int limit) {
+        Filter f = new Filter(filter);
+        List<ProductSummary> out = new ArrayList<>(Math.min(limit, 256));
+        if (f.none) return out;
+        RoaringBitmap rows = f.rows();
+        if (rows != null && rows.getCardinality() <= size / SPARSE) {
+            return sortedPage(rows, sort, desc, afterValue, afterId, limit);
+        }
+
+        int[] perm = permutation(sort);
+        int pos;
+        if (afterId == null) {
+            pos = desc ? size - 1 : 0;
+        } else {
+            Object key = cursorKey(sort, afterValue);
+            // first position whose (key, id) is > the cursor (ascending) or >= it (for walking back)
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compareToCursor(perm[mid], sort, key, afterId);
+                if (c < 0 || (!desc && c == 0)) lo = mid + 1; else hi = mid;
+            }
+            pos = desc ? lo - 1 : lo;
+        }
+        for (; pos >= 0 && pos < size && out.size() < limit; pos += desc ? -1 : 1) {
+            int row = perm[pos];
+            if (rows == null || rows.contains(row)) out.add(summaryAt(row));
+        }
+        return out;
+    }
+
+    // the few matching rows past the cursor, sorted, instead of a walk past every other row
+    private List<ProductSummary> sortedPage(RoaringBitmap rows, ProductSort sort, boolean desc,
+                                            Comparable<?> afterValue, Integer afterId, int limit) {
+        Object key = afterId == null ? null : cursorKey(sort, afterValue);
+        int[] matched = new int[rows.getCardinality()];
+        int n = 0;
+        for (IntIterator it = rows.getIntIterator(); it.hasNext(); ) {
+            int row = it.next();
+            int c = key == null ? 0 : compareToCursor(row, sort, key, afterId);
+            if (key == null || (desc ? c < 0 : c > 0)) matched[n++] = row;
+        }
+        matched = Arrays.copyOf(matched, n);
+        sort(matched, rowOrder(sort, prices, releaseDays, names));
+
+        List<ProductSummary> out = new ArrayList<>(Math.min(limit, n));
+        for (int i = 0; i < n && out.size() < limit; i++) {
+            out.add(summaryAt(matched[desc ? n - 1 - i : i]));
+        }
+        return out;
+    }
+
+    /** Units in stock by product id, in id order. */
+    public Map<Integer, Integer> stockById() {
+        Map<Integer, Integer> out = new LinkedHashMap<>(size * 4 / 3 + 1);
+        for (int row = 0; row < size; row++) out.put(ids[row], stock[row]);
+        return out;
+    }
+
+    private boolean sameExceptStock(int row, Product p) {
+        return Objects.equals(names.get(row), p.getName())
+                && prices[row] == cents(p.getPrice())
+                && releaseDays[row] == epochDay(p.getReleaseDate())
+                && available[row] == p.isProductAvailable()
+                && Objects.equals(brandDict.decode(brands[row]), p.getBrand())
+                && Objects.equals(categoryDict.decode(categories[row]), p.getCategory());
+    }
+
+    private static long cents(BigDecimal price) {
+        return price == null ? NULL_PRICE : toCents(price, RoundingMode.HALF_UP);
+    }
+
+    private static int epochDay(LocalDate date) {
+        return date == null ? NULL_DAY : (int) date.toEpochDay();
+    }
+
+    private ProductSummary summaryAt(int row) {
+        return new ProductSummary(ids[row], names.get(row),
+                brandDict.decode(brands[row]), categoryDict.decode(categories[row]),
+                prices[row] == NULL_PRICE ? null : BigDecimal.valueOf(prices[row], 2),
+                releaseDays[row] == NULL_DAY ? null : LocalDate.ofEpochDay(releaseDays[row]),
+                available[row], stock[row]);
+    }
+
+    private int[] permutation(ProductSort sort) {
+        return switch (sort) {
+            case PRICE -> byPrice;
+            case RELEASE_DATE -> byReleaseDate;
+            case NAME -> byName;
+        };
+    }
+
+    private static Object cursorKey(ProductSort sort, Comparable<?> value) {
+        return switch (sort) {
+            case PRICE -> toCents((BigDecimal) value, RoundingMode.HALF_UP);
+            case RELEASE_DATE -> (int) ((LocalDate) value).toEpochDay();
+            case NAME -> ((String) value).getBytes(StandardCharsets.UTF_8);
+        };
+    }
+
+    private int compareToCursor(int row, ProductSort sort, Object key, int id) {
+        int c = switch (sort) {
+            case PRICE -> Long.compare(prices[row], (Long) key);
+            case RELEASE_DATE -> Integer.compare(releaseDays[row], (Integer) key);
+            case NAME -> names.isNull(row) ? 1 : names.compare(row, (byte[]) key);
+        };
+        return c != 0 ? c : Integer.compare(ids[row], id);
+    }
+
+    private static long toCents(BigDecimal value, RoundingMode rounding) {
+        return value.setScale(2, rounding).unscaledValue().longValueExact();
+    }
+
+    /** {@link ProductFilter} resolved against this snapshot's dictionaries and units. */
+    private final class Filter {
+        private static final int ANY = -2;
+
+        final boolean none; // some constraint can't match any row
+        final int brand;
+        final int category;
+        final Boolean available;
+        final boolean priced;
+        final long minCents;
+        final long maxCents; // inclusive
+
+        Filter(ProductFilter f) {
+            ProductFilter pf = f != null ? f : new ProductFilter();
+            brand = pf.getBrand() == null ? ANY : brandDict.lookup(pf.getBrand());
+            category = pf.getCategory() == null ? ANY : categoryDict.lookup(pf.getCategory());
+            available = pf.getAvailable();
+
+            long min = Long.MIN_VALUE, max = NULL_PRICE - 1;
+            if (pf.getMinPrice() != null) min = Math.max(min, toCents(pf.getMinPrice(), RoundingMode.CEILING));
+            if (pf.getMaxPrice() != null) max = Math.min(max, toCents(pf.getMaxPrice(), RoundingMode.FLOOR));
+            if (pf.getPriceBucket() != null) {
+                PriceBuckets.Range r = PriceBuckets.parse(pf.getPriceBucket());
+                min = Math.max(min, toCents(r.min(), RoundingMode.CEILING));
+                if (r.maxExclusive() != null) max = Math.min(max, toCents(r.maxExclusive(), RoundingMode.CEILING) - 1);
+            }
+            priced = pf.getMinPrice() != null || pf.getMaxPrice() != null || pf.getPriceBucket() != null;
+            minCents = min;
+            maxCents = max;
+            none = brand == Dictionary.NULL || category == Dictionary.NULL || min > max;
+        }
+
+        /** Exactly the matching rows, or null if every row matches. */
+        RoaringBitmap rows() {
+            RoaringBitmap rows = null;
+            if (brand != ANY) rows = facetRows.brand(brand);
+            if (category != ANY) rows = and(rows, facetRows.category(category));
+            if (available != null) rows = and(rows, available ? facetRows.available : facetRows.unavailable);
+            if (!priced) return rows;
+
+            // the rows in the price range are one run of the price order
+            int from = firstAtLeast(minCents), to = firstAtLeast(maxCents + 1);
+            if (rows == null || to - from < rows.getCardinality()) {
+                RoaringBitmap inRange = new RoaringBitmap();
+                inRange.addN(byPrice, from, to - from);
+                return and(rows, inRange);
+            }
+            RoaringBitmap out = new RoaringBitmap();
+            for (IntIterator it = rows.getIntIterator(); it.hasNext(); ) {
+                int row = it.next();
+                if (prices[row] >= minCents && prices[row] <= maxCents) out.add(row);
+            }
+            return out;
+        }
+
+        private int firstAtLeast(long cents) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (prices[byPrice[mid]] < cents) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        private static RoaringBitmap and(RoaringBitmap a, RoaringBitmap b) {
+            return a == null ? b : RoaringBitmap.and(a, b);
+        }
+    }
+
+    /** Rows of each brand, category and availability value; never modified once built. */
+    private static final class FacetRows {
+        private static final RoaringBitmap NONE = new RoaringBitmap();
+
+        final RoaringBitmap[] brands;
+        final RoaringBitmap[] categories;
+        final RoaringBitmap available = new RoaringBitmap();
+        final RoaringBitmap unavailable = new RoaringBitmap();
+
+        FacetRows(CatalogSnapshot s) {
+            brands = new RoaringBitmap[s.brandDict.size()];
+            categories = new RoaringBitmap[s.categoryDict.size()];
+            for (int row = 0; row < s.size; row++) {
+                add(brands, s.brands[row], row);
+                add(categories, s.categories[row], row);
+                (s.available[row] ? available : unavailable).add(row);
+            }
+        }
+
+        private static void add(RoaringBitmap[] byCode, int code, int row) {
+            if (code == Dictionary.NULL) return;
+            if (byCode[code] == null) byCode[code] = new RoaringBitmap();
+            byCode[code].add(row);
+        }
+
+        RoaringBitmap brand(int code) {
+            return brands[code] != null ? brands[code] : NONE;
+        }
+
+        RoaringBitmap category(int code) {
+            return categories[code] != null ? categories[code] : NONE;
+        }
+    }
+
+    // ----------------- Building -----------------
+
+    /** Orders rows by {@code (key, id)}; rows are in id order, so row order breaks ties. */
+    private interface RowOrder {
+        int compare(int a, int b);
+    }
+
+    private static final class Builder {
+        int size;
+        final int[] ids;
+        final StringColumn.Builder names;
+        final long[] prices;
+        final int[] stock;
+        final int[] releaseDays;
+        final boolean[] available;
+        final int[] brands;
+        final int[] categories;
+        final Dictionary brandDict;
+        final Dictionary categoryDict;
+
+        // sized for base's names plus some slack for changed rows
+        Builder(int capacity, CatalogSnapshot base, Dictionary brandDict, Dictionary categoryDict) {
+            int extra = capacity - (base == null ? 0 : base.size);
+            ids = new int[capacity];
+            names = new StringColumn.Builder(capacity, (base == null ? 0 : base.names.length()) + extra * 64);
+            prices = new long[capacity];
+            stock = new int[capacity];
+            releaseDays = new int[capacity];
+            available = new boolean[capacity];
+            brands = new int[capacity];
+            categories = new int[capacity];
+            this.brandDict = brandDict;
+            this.categoryDict = categoryDict;
+        }
+
+        int add(Product p) {
+            int row = size++;
+            ids[row] = p.getId();
+            names.add(p.getName());
+            prices[row] = cents(p.getPrice());
+            stock[row] = p.getStockQuantity();
+            releaseDays[row] = epochDay(p.getReleaseDate());
+            available[row] = p.isProductAvailable();
+            brands[row] = brandDict.encode(p.getBrand());
+            categories[row] = categoryDict.encode(p.getCategory());
+            return row;
+        }
+
+        /**
+         * Appends rows {@code [from, from + count)} of {@code src}, returning the first new row.
+         * The dictionaries were copied from src's, so its codes are valid here.
+         */
+        int copy(CatalogSnapshot src, int from, int count) {
+            int row = size;
+            System.arraycopy(src.ids, from, ids, row, count);
+            System.arraycopy(src.prices, from, prices, row, count);
+            System.arraycopy(src.stock, from, stock, row, count);
+            System.arraycopy(src.releaseDays, from, releaseDays, row, count);
+            System.arraycopy(src.available, from, available, row, count);
+            System.arraycopy(src.brands, from, brands, row, count);
+            System.arraycopy(src.categories, from, categories, row, count);
+            names.copy(src.names, from, count);
+            size += count;
+            return row;
+        }
+
+        // call once every row is in
+        RowOrder order(ProductSort sort) {
+            return rowOrder(sort, prices, releaseDays, names.build());
+        }
+    }
+
+    private static RowOrder rowOrder(ProductSort sort, long[] prices, int[] releaseDays, StringColumn n) {
+        return switch (sort) {
+            case PRICE -> (a, b) -> prices[a] != prices[b] ? Long.compare(prices[a], prices[b]) : Integer.compare(a, b);
+            case RELEASE_DATE -> (a, b) -> releaseDays[a] != releaseDays[b]
+                    ? Integer.compare(releaseDays[a], releaseDays[b]) : Integer.compare(a, b);
+            case NAME -> (a, b) -> {
+                boolean na = n.isNull(a), nb = n.isNull(b);
+                int c = na || nb ? Boolean.compare(na, nb) : n.compare(a, b);
+                return c != 0 ? c : Integer.compare(a, b);
+            };
+        };
+    }
+
+    private static int[] identity(int n) {
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) a[i] = i;
+        return a;
+    }
+
+    /**
+     * The old permutation, renumbered and without dropped rows, with the new rows
+     * inserted at binary-searched positions: only k·log n rows are compared, the
+     * rest is block copies.
+     */
+    private static int[] merge(int[] oldPerm, int[] rowMap, int[] newRows, RowOrder order, int size) {
+        sort(newRows, order);
+        int[] kept = new int[size - newRows.length];
+        int n = 0;
+        for (int oldRow : oldPerm) {
+            int row = rowMap[oldRow];
+            if (row >= 0) kept[n++] = row;
+        }
+        int[] out = new int[size];
+        int from = 0, o = 0;
+        for (int row : newRows) {
+            int lo = from, hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (order.compare(kept[mid], row) < 0) lo = mid + 1; else hi = mid;
+            }
+            System.arraycopy(kept, from, out, o, lo - from);
+            o += lo - from;
+            from = lo;
+            out[o++] = row;
+        }
+        System.arraycopy(kept, from, out, o, n - from);
+        return out;
+    }
+
+    // merge sort on primitive row numbers, so millions of rows sort without boxing
+    private static void sort(int[] rows, RowOrder order) {
+        if (rows.length < 2) return;
+        int[] buf = rows.clone();
+        mergeSort(buf, rows, 0, rows.length, order);
+    }
+
+    private static void mergeSort(int[] src, int[] dst, int from, int to, RowOrder order) {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; i++) {
+                int v = dst[i];
+                int k = i - 1;
+                while (k >= from && order.compare(dst[k], v) > 0) {
+                    dst[k + 1] = dst[k];
+                    k--;
+                }
+                dst[k + 1] = v;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(dst, src, from, mid, order);
+        mergeSort(dst, src, mid, to, order);
+        for (int i = from, p = from, q = mid; i < to; i++) {
+            dst[i] = q >= to || (p < mid && order.compare(src[p], src[q]) <= 0) ? src[p++] : src[q++];
+        }
+    }
+}
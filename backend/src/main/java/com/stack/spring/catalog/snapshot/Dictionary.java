@@ -0,0 +1,54 @@
+package com.stack.spring.catalog.snapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for low-cardinality strings (brand, category):
+ * each distinct value is stored once and rows keep an int code. Code -1 is null.
+ * <p>
+ * Only appended to while a snapshot is being built; codes never change, so a new
+ * snapshot can copy the codes of unchanged rows as they are.
+ */
+final class Dictionary {
+
+    static final int NULL = -1;
+
+    private final List<String> values;
+    private final Map<String, Integer> codes;
+
+    Dictionary() {
+        this.values = new ArrayList<>();
+        this.codes = new HashMap<>();
+    }
+
+    Dictionary(Dictionary base) {
+        this.values = new ArrayList<>(base.values);
+        this.codes = new HashMap<>(base.codes);
+    }
+
+    int encode(String value) {
+        if (value == null) return NULL;
+        Integer code = codes.get(value);
+        if (code != null) return code;
+        values.add(value);
+        codes.put(value, values.size() - 1);
+        return values.size() - 1;
+    }
+
+    /** Code of {@code value}, or NULL if it never occurs. */
+    int lookup(String value) {
+        return value == null ? NULL : codes.getOrDefault(value, NULL);
+    }
+
+    String decode(int code) {
+        return code == NULL ? null : values.get(code);
+    }
+
+    /** Number of codes handed out; codes are {@code 0..size()-1}. */
+    int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,103 @@
+package com.stack.spring.catalog.snapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A column of strings stored as one UTF-8 byte array plus row offsets, instead of
+ * a {@code String} object (and its own array) per row. Immutable once built.
+ * <p>
+ * Limited to 2 GB of text per column.
+ */
+final class StringColumn {
+
+    private final byte[] data;
+    private final int length;
+    private final int[] offsets; // row i is data[offsets[i], offsets[i + 1])
+    private final BitSet nulls;
+
+    private StringColumn(byte[] data, int length, int[] offsets, BitSet nulls) {
+        this.data = data;
+        this.length = length;
+        this.offsets = offsets;
+        this.nulls = nulls;
+    }
+
+    /** Bytes of text held. */
+    int length() {
+        return length;
+    }
+
+    String get(int row) {
+        if (nulls.get(row)) return null;
+        return new String(data, offsets[row], offsets[row + 1] - offsets[row], StandardCharsets.UTF_8);
+    }
+
+    boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    /** Byte-wise (i.e. code point) order of two non-null rows. */
+    int compare(int a, int b) {
+        return Arrays.compareUnsigned(data, offsets[a], offsets[a + 1], data, offsets[b], offsets[b + 1]);
+    }
+
+    /** Byte-wise order of a non-null row against UTF-8 {@code other}. */
+    int compare(int row, byte[] other) {
+        return Arrays.compareUnsigned(data, offsets[row], offsets[row + 1], other, 0, other.length);
+    }
+
+    static final class Builder {
+        private byte[] data;
+        private int length;
+        private final int[] offsets;
+        private final BitSet nulls = new BitSet();
+        private int size;
+
+        Builder(int rows, int bytes) {
+            this.data = new byte[Math.max(bytes, 16)];
+            this.offsets = new int[rows + 1];
+        }
+
+        void add(String s) {
+            if (s == null) {
+                nulls.set(size);
+            } else {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                ensure(b.length);
+                System.arraycopy(b, 0, data, length, b.length);
+                length += b.length;
+            }
+            offsets[++size] = length;
+        }
+
+        /** Appends rows {@code [from, from + count)} of {@code src}. */
+        void copy(StringColumn src, int from, int count) {
+            int start = src.offsets[from];
+            int bytes = src.offsets[from + count] - start;
+            ensure(bytes);
+            System.arraycopy(src.data, start, data, length, bytes);
+            int shift = length - start;
+            for (int i = 1; i <= count; i++) {
+                offsets[size + i] = src.offsets[from + i] + shift;
+            }
+            for (int row = src.nulls.nextSetBit(from); row >= 0 && row < from + count; row = src.nulls.nextSetBit(row + 1)) {
+                nulls.set(size + row - from);
+            }
+            size += count;
+            length += bytes;
+        }
+
+        StringColumn build() {
+            if (data.length - length > length / 8) data = Arrays.copyOf(data, length); // growth slack
+            return new StringColumn(data, length, offsets, nulls);
+        }
+
+        private void ensure(int more) {
+            if (length + more > data.length) {
+                data = Arrays.copyOf(data, Math.max(length + more, (int) Math.min(Integer.MAX_VALUE - 8, data.length * 3L / 2)));
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.stack.spring.config;
 
+import com.stack.spring.image.service.ImageStore;
 import com.stack.spring.model.Product;
 import com.stack.spring.repo.ProductRepo;
 import org.springframework.boot.CommandLineRunner;
@@ -18,33 +19,33 @@ import java.util.Set;
 public class DataSeeder {
 
     @Bean
-    CommandLineRunner seedProducts(ProductRepo repo) {
+    CommandLineRunner seedProducts(ProductRepo repo, ImageStore imageStore) {
         return args -> {
             // avoid duplicates by checking existing names
             Set<String> existing = new HashSet<>();
             repo.findAll().forEach(p -> existing.add(p.getName().toLowerCase(Locale.ROOT)));
 
-            addIfMissing(repo, existing,
+            addIfMissing(repo, imageStore, existing,
                     "Apple iPhone 15 Pro", "Apple", "Flagship smartphone, 128GB, 6.1\"",
                     new BigDecimal("999"), "Mobile", 30, "2024-09-20",
                     "iphone15.jpg", "image/jpeg");
 
-            addIfMissing(repo, existing,
+            addIfMissing(repo, imageStore, existing,
                     "Sony WH-1000XM5", "Sony", "Noise-cancelling wireless headphones",
                     new BigDecimal("349"), "Headphone", 50, "2023-08-01",
                     "sonywh.jpg", "image/jpeg");
 
-            addIfMissing(repo, existing,
+            addIfMissing(repo, imageStore, existing,
                     "Dell XPS 13", "Dell", "Ultrabook laptop, 16GB RAM, 512GB SSD",
                     new BigDecimal("1299"), "Laptop", 12, "2024-01-10",
                     "xps13.jpg", "image/jpeg");
 
-            addIfMissing(repo, existing,
+            addIfMissing(repo, imageStore, existing,
                     "Logitech MX Master 3", "Logitech", "Wireless ergonomic mouse",
                     new BigDecimal("99"), "Electronics", 100, "2022-11-05",
                     "mxmaster3.jpg", "image/jpeg");
 
-            addIfMissing(repo, existing,
+            addIfMissing(repo, imageStore, existing,
                     "Samsung 4K Monitor", "Samsung", "27\" UHD HDR display",
                     new BigDecimal("399"), "Electronics", 25, "2023-05-15",
                     "samsung4k.jpg", "image/jpeg");
@@ -52,7 +53,7 @@ public class DataSeeder {
     }
 
     private static void addIfMissing(
-            ProductRepo repo, Set<String> existing,
+            ProductRepo repo, ImageStore imageStore, Set<String> existing,
             String name, String brand, String desc,
             BigDecimal price, String category, int stock, String date,
             String imageFileName, String imageType) throws Exception {
@@ -72,7 +73,7 @@ public class DataSeeder {
         p.setImageType(imageType);
 
         byte[] bytes = new ClassPathResource("seed-images/" + imageFileName).getContentAsByteArray();
-        p.setImageData(bytes);
+        p.setImageKey(imageStore.put(bytes, imageType));
 
         repo.save(p);
     }
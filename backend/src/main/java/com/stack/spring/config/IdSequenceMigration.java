@@ -0,0 +1,64 @@
+package com.stack.spring.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.DataSourceInitializer;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Moves tables created with IDENTITY ids onto the pooled sequences the entities now use.
+ * The identity default is dropped, so a stray INSERT without an id fails instead of
+ * colliding later. Each sequence is then moved past the table's highest id: Hibernate
+ * treats a nextval of {@code n} as the block {@code n-49..n}, so it is set to
+ * {@code max(id)}. Does nothing once the sequences are ahead, or on a fresh database
+ * (Hibernate then creates the tables and sequences itself).
+ * <p>
+ * Runs as a {@link DataSourceInitializer} that JPA depends on, so no insert, from a
+ * request or a startup runner, can take an id before the sequences are realigned.
+ */
+@Configuration
+public class IdSequenceMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceMigration.class);
+
+    // table -> sequence; all allocate 50 ids per nextval
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "product", "product_seq",
+            "order_payment", "order_payment_seq",
+            "app_user", "app_user_seq");
+
+    @Bean
+    DataSourceInitializer idSequenceInitializer(DataSource dataSource) {
+        DataSourceInitializer initializer = new DataSourceInitializer();
+        initializer.setDataSource(dataSource);
+        initializer.setDatabasePopulator(connection ->
+                migrateIdsToSequences(new JdbcTemplate(new SingleConnectionDataSource(connection, true))));
+        return initializer;
+    }
+
+    @Bean
+    static EntityManagerFactoryDependsOnPostProcessor idSequencesBeforeJpa() {
+        return new EntityManagerFactoryDependsOnPostProcessor("idSequenceInitializer");
+    }
+
+    private static void migrateIdsToSequences(JdbcTemplate jdbc) {
+        SEQUENCES.forEach((table, sequence) -> {
+            if (jdbc.queryForObject("SELECT to_regclass(?) IS NULL", Boolean.class, table)) return;
+            jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+            jdbc.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence + " START WITH 1 INCREMENT BY 50");
+            Long max = jdbc.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+            if (max == null) return;
+            Long moved = jdbc.query("SELECT setval('" + sequence + "', ?) FROM " + sequence +
+                            " WHERE NOT is_called OR last_value < ?",
+                    rs -> rs.next() ? rs.getLong(1) : null, max, max);
+            if (moved != null) log.info("Sequence {} moved past max({}.id) = {}", sequence, table, max);
+        });
+    }
+}
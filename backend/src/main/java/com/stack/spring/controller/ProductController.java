@@ -1,14 +1,31 @@
 package com.stack.spring.controller;
 
+import com.stack.spring.catalog.service.CatalogJsonService;
+import com.stack.spring.dto.CacheStats;
+import com.stack.spring.dto.FieldSet;
+import com.stack.spring.dto.ProductBatch;
+import com.stack.spring.dto.ProductDetail;
+import com.stack.spring.dto.ProductField;
+import com.stack.spring.dto.ProductFilter;
+import com.stack.spring.dto.ProductPage;
 import com.stack.spring.dto.ProductRequest;
+import com.stack.spring.image.service.ImageStore;
+import com.stack.spring.image.service.ImageTooLargeException;
+import com.stack.spring.image.service.ImageVariantService;
 import com.stack.spring.model.Product;
+import com.stack.spring.search.dto.SearchResponse;
+import com.stack.spring.search.dto.Suggestion;
+import com.stack.spring.search.service.SuggestionService;
+import com.stack.spring.service.ProductCache;
 import com.stack.spring.service.ProductService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -21,65 +38,150 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ImageVariantService imageVariants;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CatalogJsonService catalogJson;
+
     // GET all products
+    // Sends JSON pre-rendered for the current catalog version (gzipped if accepted).
+    // Its hash is the ETag, so an unchanged catalog costs a 304 and no serialization.
+    // ?fields=id,name,price limits each product to those fields.
+    // Stock levels change with every sale, so they come from /products/stock instead;
+    // only an explicit ?fields=...,stockQuantity gets them inline, serialized per request.
     @GetMapping("/products")
-    public ResponseEntity<List<Product>> getProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<?> getProducts(
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        FieldSet fieldSet = parseFields(fields);
+        if (fields != null && fieldSet.contains(ProductField.STOCK_QUANTITY)) {
+            return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT_ENCODING).body(productService.getAllProducts(fieldSet));
+        }
+        CatalogJsonService.Rendered catalog = catalogJson.current(fieldSet.without(ProductField.STOCK_QUANTITY));
+        if (catalog == null) { // still starting up
+            return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT_ENCODING).body(productService.getAllProducts(fieldSet));
+        }
+        return rendered(catalog, acceptEncoding);
+    }
+
+    // GET units in stock of every product: {"<id>": n, ...}, with its own ETag
+    @GetMapping("/products/stock")
+    public ResponseEntity<?> getProductStock(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CatalogJsonService.Rendered stock = catalogJson.stock();
+        if (stock == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Catalog is still loading");
+        }
+        return rendered(stock, acceptEncoding);
+    }
+
+    // GET one page of products (keyset pagination, see ProductService.listProducts)
+    @GetMapping("/products/page")
+    public ResponseEntity<ProductPage> getProductPage(
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String dir,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            ProductFilter filter
+    ) {
+        return ResponseEntity.ok(productService.listProducts(filter, sort, dir, limit, cursor));
+    }
+
+    // GET several products by id, e.g. for the cart: ?ids=3,1,2
+    // Items come back in the order asked; unknown ids are listed under "missing".
+    @GetMapping("/products/batch")
+    public ResponseEntity<ProductBatch> getProductsByIds(@RequestParam List<Integer> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
+    // Same, with the ids as a JSON array body for lists too long for a URL
+    @PostMapping("/products/batch")
+    public ResponseEntity<ProductBatch> getProductsByIdsPost(@RequestBody List<Integer> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
     }
 
     // GET product by ID
     @GetMapping("/product/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable int id) {
+    public ResponseEntity<ProductDetail> getProductById(@PathVariable int id) {
         return ResponseEntity.ok(productService.getProductById(id));
     }
 
     // GET product image (returns correct content-type)
+    // The content key doubles as a strong ETag; Spring answers If-None-Match with 304
+    // and Range requests with 206 regions straight from the stored Resource.
+    // ?variant=thumb|card|detail or ?w=<px> serves a resized copy instead of the original.
     @GetMapping("/product/{productId}/image")
-    public ResponseEntity<byte[]> getProductImage(@PathVariable int productId) {
-        Product product = productService.getProductById(productId);
+    public ResponseEntity<Resource> getProductImage(@PathVariable int productId,
+                                                    @RequestParam(required = false) String variant,
+                                                    @RequestParam(required = false) Integer w) {
+        ProductDetail product = productService.getProductById(productId);
+        if (product.imageKey() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
 
-        byte[] data = product.getImageData();
-        if (data == null || data.length == 0) {
+        Integer width = imageVariants.resolveWidth(variant, w).orElse(null);
+        if (width != null) {
+            Resource resized = imageVariants.open(product.imageKey(), product.imageType(), width).orElse(null);
+            if (resized != null) {
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(imageVariants.contentType(product.imageType())))
+                        .eTag(imageVariants.variantKey(product.imageKey(), width))
+                        .cacheControl(CacheControl.maxAge(30, TimeUnit.DAYS).cachePublic())
+                        .body(resized);
+            }
+            // not decodable by ImageIO: fall through to the original
+        }
+
+        Resource image = imageStore.open(product.imageKey()).orElse(null);
+        if (image == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
 
         MediaType mediaType = MediaType.APPLICATION_OCTET_STREAM;
         try {
-            if (product.getImageType() != null && !product.getImageType().isBlank()) {
-                mediaType = MediaType.parseMediaType(product.getImageType());
+            if (product.imageType() != null && !product.imageType().isBlank()) {
+                mediaType = MediaType.parseMediaType(product.imageType());
             }
         } catch (Exception ignored) { }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(mediaType);
-
         return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_JPEG)
+                .contentType(mediaType)
+                .eTag(product.imageKey())
                 .cacheControl(CacheControl.maxAge(30, TimeUnit.DAYS).cachePublic())
-                .body(product.getImageData());
+                .body(image);
     }
 
     // CREATE product (Admin only)
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping(value = "/product", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Product> addProduct(
+    public ResponseEntity<ProductDetail> addProduct(
             @Valid @RequestPart("product") ProductRequest req,
             @RequestPart("imageFile") MultipartFile imageFile
     ) {
         Product saved = productService.createProduct(req, imageFile);
-        return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+        return ResponseEntity.status(HttpStatus.CREATED).body(ProductDetail.of(saved));
     }
 
     // UPDATE product (Admin only)
     @PreAuthorize("hasRole('ADMIN')")
     @PutMapping(value = "/product/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Product> updateProduct(
+    public ResponseEntity<ProductDetail> updateProduct(
             @PathVariable int id,
             @Valid @RequestPart("product") ProductRequest req,
             @RequestPart(value = "imageFile", required = false) MultipartFile imageFile
     ) {
         Product updated = productService.updateProduct(id, req, imageFile);
-        return ResponseEntity.ok(updated);
+        return ResponseEntity.ok(ProductDetail.of(updated));
     }
 
     // DELETE product (Admin only)
@@ -90,9 +192,80 @@ public class ProductController {
         return ResponseEntity.ok("Deleted");
     }
 
-    // SEARCH products
+    // SEARCH products (?fields= as for /products)
     @GetMapping("/product/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String keyword) {
-        return ResponseEntity.ok(productService.searchProducts(keyword));
+    public ResponseEntity<SearchResponse> searchProducts(@RequestParam String keyword,
+                                                         @RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(productService.searchProducts(keyword, parseFields(fields)));
+    }
+
+    // Typeahead for the search box, served from memory
+    @GetMapping("/product/suggest")
+    public ResponseEntity<List<Suggestion>> suggest(@RequestParam String prefix,
+                                                    @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(suggestionService.suggest(prefix, limit));
+    }
+
+    // Hit/miss/eviction counters of the product-by-id cache
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/admin/product-cache")
+    public ResponseEntity<CacheStats> productCacheStats() {
+        return ResponseEntity.ok(productCache.stats());
+    }
+
+    private static ResponseEntity<byte[]> rendered(CatalogJsonService.Rendered r, String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(gzip ? r.etag() + "-gz" : r.etag())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .cacheControl(CacheControl.noCache());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? r.gzip() : r.json());
+    }
+
+    // gzip, or *, listed with a non-zero q-value (RFC 9110 12.5.3); an explicit gzip entry wins over *
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        Double gzip = null;
+        Double any = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase();
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0; // malformed: don't risk sending what the client can't read
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = q;
+            } else if (coding.equals("*")) {
+                any = q;
+            }
+        }
+        if (gzip != null) return gzip > 0;
+        return any != null && any > 0;
+    }
+
+    // from the image store, which knows nothing of HTTP
+    @ExceptionHandler(ImageTooLargeException.class)
+    public ProblemDetail imageTooLarge(ImageTooLargeException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage());
+    }
+
+    private static FieldSet parseFields(String fields) {
+        try {
+            return FieldSet.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 }
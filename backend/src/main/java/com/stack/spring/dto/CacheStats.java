@@ -0,0 +1,19 @@
+package com.stack.spring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counters of an in-process cache since startup.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStats {
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private double hitRate;
+}
@@ -0,0 +1,137 @@
+package com.stack.spring.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Collectors;
+
+/**
+ * A {@code fields=} selection of {@link ProductField}s. There is one instance per
+ * combination, built up front along with its JPQL select list and JSON writer, so
+ * a request only looks its set up.
+ */
+public final class FieldSet {
+
+    private static final ProductField[] FIELDS = ProductField.values();
+    private static final FieldSet[] BY_MASK = new FieldSet[1 << FIELDS.length];
+
+    static {
+        for (int mask = 1; mask < BY_MASK.length; mask++) {
+            BY_MASK[mask] = new FieldSet(mask);
+        }
+    }
+
+    public static final FieldSet ALL = BY_MASK[BY_MASK.length - 1];
+
+    private final int mask;
+    private final ProductField[] fields; // declaration order
+    private final String jpqlSelect;
+
+    private FieldSet(int mask) {
+        this.mask = mask;
+        this.fields = Arrays.stream(FIELDS).filter(f -> (mask & bit(f)) != 0).toArray(ProductField[]::new);
+        this.jpqlSelect = Arrays.stream(fields).map(ProductField::jpql).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Parses a comma-separated list such as {@code id,name,price}; null or blank means all.
+     *
+     * @throws IllegalArgumentException on an unknown or empty list
+     */
+    public static FieldSet parse(String s) {
+        if (s == null || s.isBlank()) return ALL;
+        int mask = 0;
+        for (String name : s.split(",")) {
+            if (!name.isBlank()) mask |= bit(ProductField.from(name));
+        }
+        if (mask == 0) throw new IllegalArgumentException("No fields requested: " + s);
+        return BY_MASK[mask];
+    }
+
+    public List<ProductField> fields() {
+        return List.of(fields);
+    }
+
+    public boolean contains(ProductField f) {
+        return (mask & bit(f)) != 0;
+    }
+
+    /** This set plus {@code id}, which queries select anyway for ordering and facets. */
+    public FieldSet withId() {
+        return BY_MASK[mask | bit(ProductField.ID)];
+    }
+
+    /** This set minus {@code f}, or null if nothing would be left. */
+    public FieldSet without(ProductField f) {
+        return BY_MASK[mask & ~bit(f)];
+    }
+
+    /** e.g. {@code p.id, p.name, p.price} */
+    public String jpqlSelect() {
+        return jpqlSelect;
+    }
+
+    /**
+     * {@code items} as they should be serialized: unchanged for {@link #ALL}, otherwise
+     * a view that Jackson writes with only these fields.
+     */
+    public List<ProductSummary> view(List<ProductSummary> items) {
+        return this == ALL ? items : new Sparse(items, this);
+    }
+
+    public void write(JsonGenerator gen, ProductSummary p) throws IOException {
+        gen.writeStartObject();
+        for (ProductField f : fields) {
+            f.write(gen, p);
+        }
+        gen.writeEndObject();
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.stream(fields).map(ProductField::property).collect(Collectors.joining(","));
+    }
+
+    private static int bit(ProductField f) {
+        return 1 << f.ordinal();
+    }
+
+    @JsonSerialize(using = SparseSerializer.class)
+    private static final class Sparse extends AbstractList<ProductSummary> implements RandomAccess {
+        private final List<ProductSummary> items;
+        private final FieldSet fields;
+
+        Sparse(List<ProductSummary> items, FieldSet fields) {
+            this.items = items;
+            this.fields = fields;
+        }
+
+        @Override
+        public ProductSummary get(int index) { return items.get(index); }
+
+        @Override
+        public int size() { return items.size(); }
+    }
+
+    static final class SparseSerializer extends StdSerializer<Sparse> {
+        SparseSerializer() {
+            super(Sparse.class);
+        }
+
+        @Override
+        public void serialize(Sparse list, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray(list, list.size());
+            for (ProductSummary p : list.items) {
+                list.fields.write(gen, p);
+            }
+            gen.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.stack.spring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Products resolved from a list of ids, in the order requested (repeats dropped).
+ * Ids with no product are listed in {@code missing} rather than failing the request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatch {
+    private List<ProductDetail> items;
+    private List<Integer> missing;
+}
@@ -0,0 +1,32 @@
+package com.stack.spring.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.stack.spring.model.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * A product as the detail and edit pages see it: every column except the image
+ * bytes, which are served by {@code /api/product/{id}/image}.
+ */
+public record ProductDetail(
+        int id,
+        String name,
+        String description,
+        String brand,
+        BigDecimal price,
+        String category,
+        LocalDate releaseDate,
+        boolean productAvailable,
+        int stockQuantity,
+        String imageName,
+        String imageType,
+        @JsonIgnore String imageKey
+) {
+    public static ProductDetail of(Product p) {
+        return new ProductDetail(p.getId(), p.getName(), p.getDescription(), p.getBrand(), p.getPrice(),
+                p.getCategory(), p.getReleaseDate(), p.isProductAvailable(), p.getStockQuantity(),
+                p.getImageName(), p.getImageType(), p.getImageKey());
+    }
+}
@@ -0,0 +1,58 @@
+package com.stack.spring.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * The {@link ProductSummary} fields a client can ask for with {@code fields=}.
+ * Each knows its JSON name, its JPQL path and how to write its value.
+ */
+public enum ProductField {
+    ID("id", (g, p) -> g.writeNumber(p.id())),
+    NAME("name", (g, p) -> g.writeString(p.name())),
+    BRAND("brand", (g, p) -> g.writeString(p.brand())),
+    CATEGORY("category", (g, p) -> g.writeString(p.category())),
+    PRICE("price", (g, p) -> g.writeNumber(p.price())),
+    RELEASE_DATE("releaseDate", (g, p) -> {
+        LocalDate d = p.releaseDate();
+        g.writeString(d == null ? null : d.toString()); // ISO, as Jackson writes it
+    }),
+    PRODUCT_AVAILABLE("productAvailable", (g, p) -> g.writeBoolean(p.productAvailable())),
+    STOCK_QUANTITY("stockQuantity", (g, p) -> g.writeNumber(p.stockQuantity()));
+
+    @FunctionalInterface
+    interface ValueWriter {
+        void write(JsonGenerator gen, ProductSummary p) throws IOException;
+    }
+
+    private final String property;
+    private final SerializedString jsonName; // pre-encoded once
+    private final ValueWriter writer;
+
+    ProductField(String property, ValueWriter writer) {
+        this.property = property;
+        this.jsonName = new SerializedString(property);
+        this.writer = writer;
+    }
+
+    public String property() { return property; }
+
+    public String jpql() { return "p." + property; }
+
+    void write(JsonGenerator gen, ProductSummary p) throws IOException {
+        gen.writeFieldName(jsonName);
+        writer.write(gen, p);
+    }
+
+    /** Accepts the JSON name, case-insensitively and ignoring underscores. */
+    public static ProductField from(String s) {
+        String norm = s.trim().replace("_", "").toLowerCase();
+        for (ProductField f : values()) {
+            if (f.property.toLowerCase().equals(norm)) return f;
+        }
+        throw new IllegalArgumentException("Unknown field: " + s);
+    }
+}
@@ -0,0 +1,22 @@
+package com.stack.spring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Optional catalog filters; null fields don't constrain the result.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilter {
+    private String category;
+    private String brand;
+    private Boolean available;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private String priceBucket; // a facet label such as "50-100" or "1000+"
+}
@@ -0,0 +1,22 @@
+package com.stack.spring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a keyset listing. Pass {@code nextCursor} back to get the following page;
+ * it is null on the last page. {@code facets} (field -> value -> count over the
+ * whole filtered listing) is only filled on the first page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPage {
+    private List<ProductSummary> items;
+    private String nextCursor;
+    private Map<String, Map<String, Integer>> facets;
+}
@@ -0,0 +1,40 @@
+package com.stack.spring.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.function.Function;
+
+/**
+ * Sort keys supported by the keyset listing. Each is paired with {@code id} as a tie-breaker.
+ */
+public enum ProductSort {
+    PRICE("price", ProductSummary::price, BigDecimal::new),
+    RELEASE_DATE("releaseDate", ProductSummary::releaseDate, LocalDate::parse),
+    NAME("name", ProductSummary::name, s -> s);
+
+    private final String property;
+    private final Function<ProductSummary, Comparable<?>> getter;
+    private final Function<String, Comparable<?>> parser;
+
+    ProductSort(String property, Function<ProductSummary, Comparable<?>> getter, Function<String, Comparable<?>> parser) {
+        this.property = property;
+        this.getter = getter;
+        this.parser = parser;
+    }
+
+    public String property() { return property; }
+
+    public Comparable<?> valueOf(ProductSummary p) { return getter.apply(p); }
+
+    public Comparable<?> parse(String s) { return parser.apply(s); }
+
+    /** Accepts {@code price}, {@code releaseDate}/{@code release_date}, {@code name}; null means price. */
+    public static ProductSort from(String s) {
+        if (s == null || s.isBlank()) return PRICE;
+        String norm = s.trim().replace("_", "").toLowerCase();
+        for (ProductSort sort : values()) {
+            if (sort.property.toLowerCase().equals(norm)) return sort;
+        }
+        throw new IllegalArgumentException("Unsupported sort: " + s);
+    }
+}
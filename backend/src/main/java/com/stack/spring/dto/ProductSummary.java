@@ -0,0 +1,26 @@
+package com.stack.spring.dto;
+
+import com.stack.spring.model.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * What product lists, search results and carts show. Selected column by column
+ * by the {@code ProductRepo} queries that return it.
+ */
+public record ProductSummary(
+        int id,
+        String name,
+        String brand,
+        String category,
+        BigDecimal price,
+        LocalDate releaseDate,
+        boolean productAvailable,
+        int stockQuantity
+) {
+    public static ProductSummary of(Product p) {
+        return new ProductSummary(p.getId(), p.getName(), p.getBrand(), p.getCategory(), p.getPrice(),
+                p.getReleaseDate(), p.isProductAvailable(), p.getStockQuantity());
+    }
+}
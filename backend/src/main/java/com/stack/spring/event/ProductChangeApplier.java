@@ -0,0 +1,108 @@
+package com.stack.spring.event;
+
+import com.stack.spring.model.Product;
+import com.stack.spring.repo.ProductRepo;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Keeps an in-memory read model in step with the product table.
+ * <p>
+ * Only the ids of a {@link ProductChangedEvent} are used: events of concurrent commits
+ * can arrive in either order, so the products they carry may be older than what the
+ * database has. The ids are queued by the committing thread, then re-read and handed
+ * to the model on one background thread. While one apply runs, further changes pile up
+ * and go into the next. Full loads run on the same thread, so a change is never lost
+ * to, or overwritten by, a load running at the same time.
+ */
+public class ProductChangeApplier {
+
+    private final String name;
+    private final ProductRepo productRepo;
+    private final Consumer<List<Product>> load;
+    private final Consumer<Map<Integer, Product>> apply;
+
+    private final Object pendingLock = new Object();
+    private Set<Integer> pending = new HashSet<>(); // ids saved or deleted since the last apply
+    private boolean applyQueued;
+    private boolean loaded; // only touched on the applier thread
+
+    private final ExecutorService applier;
+
+    /**
+     * {@code load} replaces the model's contents with every product; {@code apply} gets
+     * changed products by id, null for deleted ones. Both only run on the applier thread.
+     */
+    public ProductChangeApplier(String name, ProductRepo productRepo,
+                                Consumer<List<Product>> load, Consumer<Map<Integer, Product>> apply) {
+        this.name = name;
+        this.productRepo = productRepo;
+        this.load = load;
+        this.apply = apply;
+        this.applier = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Loads every product into the model and waits for it. */
+    public void load() throws InterruptedException {
+        try {
+            applier.submit(() -> {
+                synchronized (pendingLock) {
+                    pending = new HashSet<>(); // committed before the read below, so already in it
+                }
+                load.accept(productRepo.findAll());
+                loaded = true;
+            }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to load " + name, e.getCause());
+        }
+    }
+
+    /** Queues the event's ids; call after its transaction committed. */
+    public void enqueue(ProductChangedEvent event) {
+        synchronized (pendingLock) {
+            event.saved().forEach(p -> pending.add(p.getId()));
+            pending.addAll(event.deletedIds());
+            if (applyQueued) return;
+            applyQueued = true;
+        }
+        applier.execute(this::applyPending);
+    }
+
+    public void shutdown() {
+        applier.shutdownNow();
+    }
+
+    private void applyPending() {
+        Set<Integer> ids;
+        synchronized (pendingLock) {
+            ids = pending;
+            pending = new HashSet<>();
+            applyQueued = false;
+        }
+        if (!loaded || ids.isEmpty()) return; // the first load reads them anyway
+
+        Map<Integer, Product> changes = new HashMap<>();
+        try {
+            ids.forEach(id -> changes.put(id, null)); // deleted unless found
+            productRepo.findAllById(ids).forEach(p -> changes.put(p.getId(), p));
+        } catch (RuntimeException e) {
+            synchronized (pendingLock) {
+                pending.addAll(ids); // the next change retries them
+            }
+            throw e;
+        }
+        apply.accept(changes);
+    }
+}
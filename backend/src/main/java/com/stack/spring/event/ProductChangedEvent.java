@@ -0,0 +1,25 @@
+package com.stack.spring.event;
+
+import com.stack.spring.model.Product;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published whenever products are written (admin edits, stock changes at checkout).
+ * In-memory read models listen for it to stay in sync without polling the database.
+ */
+public record ProductChangedEvent(Collection<Product> saved, Collection<Integer> deletedIds) {
+
+    public static ProductChangedEvent saved(Collection<Product> products) {
+        return new ProductChangedEvent(List.copyOf(products), List.of());
+    }
+
+    public static ProductChangedEvent saved(Product product) {
+        return new ProductChangedEvent(List.of(product), List.of());
+    }
+
+    public static ProductChangedEvent deleted(int id) {
+        return new ProductChangedEvent(List.of(), List.of(id));
+    }
+}
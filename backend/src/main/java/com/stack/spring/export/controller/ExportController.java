@@ -0,0 +1,67 @@
+package com.stack.spring.export.controller;
+
+import com.stack.spring.export.service.ExportFormat;
+import com.stack.spring.export.service.ExportService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.function.Function;
+
+/**
+ * Streaming admin exports: {@code ?format=ndjson} (default) or {@code ?format=csv}.
+ * Unlike {@code /api/products} and {@code /api/payments/all}, nothing is collected
+ * into a list first.
+ */
+@RestController
+@RequestMapping("/api/admin/export")
+@PreAuthorize("hasRole('ADMIN')")
+public class ExportController {
+
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping("/products")
+    public ResponseEntity<StreamingResponseBody> products(@RequestParam(required = false) String format) {
+        return export("products", format, exportService::products);
+    }
+
+    @GetMapping("/orders")
+    public ResponseEntity<StreamingResponseBody> orders(@RequestParam(required = false) String format) {
+        return export("orders", format, exportService::orders);
+    }
+
+    // order lines, joined to /orders on orderPaymentId = id
+    @GetMapping("/order-items")
+    public ResponseEntity<StreamingResponseBody> orderItems(@RequestParam(required = false) String format) {
+        return export("order-items", format, exportService::orderItems);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> export(String name, String format,
+                                                                Function<ExportFormat, StreamingResponseBody> body) {
+        ExportFormat f;
+        try {
+            f = ExportFormat.from(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        String filename = name + "-" + LocalDate.now() + "." + f.extension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(f.contentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body.apply(f));
+    }
+}
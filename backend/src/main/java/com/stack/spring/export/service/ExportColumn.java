@@ -0,0 +1,11 @@
+package com.stack.spring.export.service;
+
+import java.util.function.Function;
+
+/** One CSV column: its header and how to read its value from a row. */
+record ExportColumn<T>(String header, Function<T, ?> value) {
+
+    static <T> ExportColumn<T> of(String header, Function<T, ?> value) {
+        return new ExportColumn<>(header, value);
+    }
+}
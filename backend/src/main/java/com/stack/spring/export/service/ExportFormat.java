@@ -0,0 +1,28 @@
+package com.stack.spring.export.service;
+
+/** Output formats of the admin export endpoints. */
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() { return contentType; }
+
+    public String extension() { return extension; }
+
+    /** {@code ndjson} (default) or {@code csv}, case-insensitive. */
+    public static ExportFormat from(String s) {
+        if (s == null || s.isBlank()) return NDJSON;
+        for (ExportFormat f : values()) {
+            if (f.extension.equalsIgnoreCase(s.trim())) return f;
+        }
+        throw new IllegalArgumentException("Unsupported format: " + s);
+    }
+}
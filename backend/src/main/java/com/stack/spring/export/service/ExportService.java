@@ -0,0 +1,122 @@
+package com.stack.spring.export.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stack.spring.dto.ProductDetail;
+import com.stack.spring.payment.model.OrderItem;
+import com.stack.spring.payment.model.OrderPayment;
+import com.stack.spring.payment.repo.OrderItemRepository;
+import com.stack.spring.payment.repo.OrderPaymentRepository;
+import com.stack.spring.repo.ProductRepo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Catalog and order exports written row by row from a database cursor, so memory
+ * use does not grow with the number of rows.
+ * <p>
+ * The returned body runs after the controller has returned, on the MVC async
+ * executor; it opens its own read-only transaction, which the cursor needs.
+ */
+@Service
+public class ExportService {
+
+    // rows per JDBC round trip; also how often loaded entities are let go
+    static final int CHUNK = 500;
+
+    private static final List<ExportColumn<ProductDetail>> PRODUCT_COLUMNS = List.of(
+            ExportColumn.of("id", ProductDetail::id),
+            ExportColumn.of("name", ProductDetail::name),
+            ExportColumn.of("description", ProductDetail::description),
+            ExportColumn.of("brand", ProductDetail::brand),
+            ExportColumn.of("category", ProductDetail::category),
+            ExportColumn.of("price", ProductDetail::price),
+            ExportColumn.of("releaseDate", ProductDetail::releaseDate),
+            ExportColumn.of("productAvailable", ProductDetail::productAvailable),
+            ExportColumn.of("stockQuantity", ProductDetail::stockQuantity),
+            ExportColumn.of("imageName", ProductDetail::imageName),
+            ExportColumn.of("imageType", ProductDetail::imageType));
+
+    private static final List<ExportColumn<OrderPayment>> ORDER_COLUMNS = List.of(
+            ExportColumn.of("id", OrderPayment::getId),
+            ExportColumn.of("username", OrderPayment::getUsername),
+            ExportColumn.of("provider", OrderPayment::getProvider),
+            ExportColumn.of("orderId", OrderPayment::getOrderId),
+            ExportColumn.of("paymentId", OrderPayment::getPaymentId),
+            ExportColumn.of("status", OrderPayment::getStatus),
+            ExportColumn.of("fulfilled", OrderPayment::isFulfilled),
+            ExportColumn.of("amount", OrderPayment::getAmount),
+            ExportColumn.of("currency", OrderPayment::getCurrency),
+            ExportColumn.of("createdAt", OrderPayment::getCreatedAt),
+            ExportColumn.of("updatedAt", OrderPayment::getUpdatedAt));
+
+    private static final List<ExportColumn<OrderItem>> ORDER_ITEM_COLUMNS = List.of(
+            ExportColumn.of("id", OrderItem::getId),
+            ExportColumn.of("orderPaymentId", OrderItem::getOrderPaymentId),
+            ExportColumn.of("productId", OrderItem::getProductId),
+            ExportColumn.of("quantity", OrderItem::getQuantity),
+            ExportColumn.of("unitPrice", OrderItem::getUnitPrice));
+
+    private final ProductRepo productRepo;
+    private final OrderPaymentRepository orderRepo;
+    private final OrderItemRepository orderItemRepo;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    public ExportService(ProductRepo productRepo,
+                         OrderPaymentRepository orderRepo,
+                         OrderItemRepository orderItemRepo,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager txManager) {
+        this.productRepo = productRepo;
+        this.orderRepo = orderRepo;
+        this.orderItemRepo = orderItemRepo;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public StreamingResponseBody products(ExportFormat format) {
+        return body(format, productRepo::streamDetails, PRODUCT_COLUMNS);
+    }
+
+    public StreamingResponseBody orders(ExportFormat format) {
+        return body(format, orderRepo::streamAll, ORDER_COLUMNS);
+    }
+
+    public StreamingResponseBody orderItems(ExportFormat format) {
+        return body(format, orderItemRepo::streamAll, ORDER_ITEM_COLUMNS);
+    }
+
+    private <T> StreamingResponseBody body(ExportFormat format, Supplier<Stream<T>> source,
+                                           List<ExportColumn<T>> columns) {
+        return out -> {
+            RowWriter<T> writer = RowWriter.create(format, out, objectMapper, columns);
+            readOnlyTx.executeWithoutResult(status -> {
+                try (Stream<T> rows = source.get()) {
+                    int n = 0;
+                    for (T row : (Iterable<T>) rows::iterator) {
+                        writer.write(row);
+                        // entities stay in the persistence context until cleared
+                        if (++n % CHUNK == 0) em.clear();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // client went away
+                }
+            });
+            writer.finish();
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.stack.spring.export.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/** Writes export rows one at a time; nothing is kept after a row is written. */
+interface RowWriter<T> {
+
+    void write(T row) throws IOException;
+
+    /** Flushes buffered output; the underlying stream is left open. */
+    void finish() throws IOException;
+
+    static <T> RowWriter<T> create(ExportFormat format, OutputStream out, ObjectMapper objectMapper,
+                                   List<ExportColumn<T>> columns) throws IOException {
+        return switch (format) {
+            case NDJSON -> new Ndjson<>(out, objectMapper);
+            case CSV -> new Csv<>(out, columns);
+        };
+    }
+
+    /** One JSON object per line, as the JSON endpoints render the same row. */
+    final class Ndjson<T> implements RowWriter<T> {
+        private final JsonGenerator gen;
+        private final ObjectWriter writer;
+
+        Ndjson(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            this.gen = objectMapper.getFactory().createGenerator(out);
+            this.gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.gen.setRootValueSeparator(null); // we write the newlines
+            this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+
+        @Override
+        public void write(T row) throws IOException {
+            writer.writeValue(gen, row);
+            gen.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            gen.close(); // flushes; target stays open
+        }
+    }
+
+    /** RFC 4180: header line, CRLF line ends, fields quoted only when they need it. */
+    final class Csv<T> implements RowWriter<T> {
+        private final Writer out;
+        private final List<ExportColumn<T>> columns;
+
+        Csv(OutputStream out, List<ExportColumn<T>> columns) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            this.columns = columns;
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) this.out.write(',');
+                field(columns.get(i).header());
+            }
+            this.out.write("\r\n");
+        }
+
+        @Override
+        public void write(T row) throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) out.write(',');
+                Object v = columns.get(i).value().apply(row);
+                if (v != null) field(v instanceof BigDecimal d ? d.toPlainString() : v.toString());
+            }
+            out.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+
+        private void field(String s) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < s.length() && !quote; i++) {
+                char c = s.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(s);
+                return;
+            }
+            out.write('"');
+            out.write(s.replace("\"", "\"\""));
+            out.write('"');
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.stack.spring.facet.index;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One compressed bitmap of doc ids per (field, value). Not thread-safe; callers guard it.
+ * <p>
+ * Filtering is an AND of value bitmaps and a facet count is the cardinality of
+ * an AND, so neither touches individual docs.
+ */
+public final class FacetIndex {
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final Map<String, Map<String, RoaringBitmap>> fields = new HashMap<>();
+    private final Map<Integer, Map<String, String>> valuesByDoc = new HashMap<>();
+    private final RoaringBitmap all = new RoaringBitmap();
+
+    /** Replaces whatever was indexed for {@code doc}; null values are skipped. */
+    public void put(int doc, Map<String, String> values) {
+        remove(doc);
+        Map<String, String> kept = new HashMap<>();
+        values.forEach((field, value) -> {
+            if (value == null) return;
+            fields.computeIfAbsent(field, k -> new HashMap<>())
+                    .computeIfAbsent(value, k -> new RoaringBitmap())
+                    .add(doc);
+            kept.put(field, value);
+        });
+        valuesByDoc.put(doc, kept);
+        all.add(doc);
+    }
+
+    public void remove(int doc) {
+        Map<String, String> old = valuesByDoc.remove(doc);
+        if (old == null) return;
+        old.forEach((field, value) -> {
+            Map<String, RoaringBitmap> byValue = fields.get(field);
+            RoaringBitmap docs = byValue.get(value);
+            docs.remove(doc);
+            if (docs.isEmpty()) byValue.remove(value);
+        });
+        all.remove(doc);
+    }
+
+    public void clear() {
+        fields.clear();
+        valuesByDoc.clear();
+        all.clear();
+    }
+
+    /** Every indexed doc. Shared: do not modify. */
+    public RoaringBitmap all() {
+        return all;
+    }
+
+    /** Docs having {@code value} in {@code field}. Shared: do not modify. */
+    public RoaringBitmap docs(String field, String value) {
+        return fields.getOrDefault(field, Map.of()).getOrDefault(value, EMPTY);
+    }
+
+    /** Non-zero counts of each value of {@code field} among {@code within}. */
+    public Map<String, Integer> counts(String field, RoaringBitmap within) {
+        Map<String, Integer> out = new LinkedHashMap<>();
+        fields.getOrDefault(field, Map.of()).forEach((value, docs) -> {
+            int n = RoaringBitmap.andCardinality(docs, within);
+            if (n > 0) out.put(value, n);
+        });
+        return out;
+    }
+}
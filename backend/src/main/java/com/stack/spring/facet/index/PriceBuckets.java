@@ -0,0 +1,68 @@
+package com.stack.spring.facet.index;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Price ranges used as a facet, e.g. bounds {@code 50,100} give "0-50", "50-100"
+ * and "100+". Each range includes its lower bound and excludes its upper one.
+ */
+public final class PriceBuckets {
+
+    /** A half-open price range; null bounds are unbounded. */
+    public record Range(BigDecimal min, BigDecimal maxExclusive) {}
+
+    private final BigDecimal[] bounds;
+
+    /** {@code spec} is a comma-separated list of ascending upper bounds. */
+    public PriceBuckets(String spec) {
+        this.bounds = Arrays.stream(spec.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(BigDecimal::new)
+                .sorted()
+                .distinct()
+                .toArray(BigDecimal[]::new);
+    }
+
+    public int size() {
+        return bounds.length + 1;
+    }
+
+    public int bucketOf(BigDecimal price) {
+        int i = 0;
+        while (i < bounds.length && price.compareTo(bounds[i]) >= 0) i++;
+        return i;
+    }
+
+    public Range range(int bucket) {
+        return new Range(bucket == 0 ? BigDecimal.ZERO : bounds[bucket - 1],
+                bucket == bounds.length ? null : bounds[bucket]);
+    }
+
+    public String label(int bucket) {
+        return label(range(bucket));
+    }
+
+    public static String label(Range r) {
+        String min = r.min().toPlainString();
+        return r.maxExclusive() == null ? min + "+" : min + "-" + r.maxExclusive().toPlainString();
+    }
+
+    /** Inverse of {@link #label(Range)}; throws IllegalArgumentException on anything else. */
+    public static Range parse(String label) {
+        String s = label.trim();
+        try {
+            if (s.endsWith("+")) {
+                return new Range(new BigDecimal(s.substring(0, s.length() - 1)), null);
+            }
+            int dash = s.indexOf('-', 1);
+            if (dash > 0) {
+                return new Range(new BigDecimal(s.substring(0, dash)), new BigDecimal(s.substring(dash + 1)));
+            }
+        } catch (NumberFormatException ignored) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid price bucket: " + label);
+    }
+}
@@ -0,0 +1,233 @@
+package com.stack.spring.facet.service;
+
+import com.stack.spring.dto.ProductFilter;
+import com.stack.spring.event.ProductChangeApplier;
+import com.stack.spring.event.ProductChangedEvent;
+import com.stack.spring.facet.index.FacetIndex;
+import com.stack.spring.facet.index.PriceBuckets;
+import com.stack.spring.model.Product;
+import com.stack.spring.repo.ProductRepo;
+import jakarta.annotation.PreDestroy;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Facet counts (category, brand, availability, price bucket) for listings and
+ * search results, computed from in-memory bitmaps instead of GROUP BY queries.
+ * Built once the app is ready and kept current from {@link ProductChangedEvent}s,
+ * which covers admin edits as well as stock changes at checkout; changed rows are
+ * re-read by a {@link ProductChangeApplier}.
+ */
+@Service
+public class FacetService {
+
+    public static final String CATEGORY = "category";
+    public static final String BRAND = "brand";
+    public static final String AVAILABLE = "available";
+    public static final String PRICE = "price";
+
+    private final PriceBuckets buckets;
+    private final ProductChangeApplier changes;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FacetIndex index = new FacetIndex();
+    // exact prices, for the few docs in a bucket that a min/max filter cuts through
+    private final Map<Integer, BigDecimal> prices = new HashMap<>();
+
+    public FacetService(ProductRepo productRepo,
+                        @Value("${app.facets.price-buckets:25,50,100,250,500,1000}") String priceBuckets) {
+        this.buckets = new PriceBuckets(priceBuckets);
+        this.changes = new ProductChangeApplier("facet-index", productRepo, this::load, this::apply);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() throws InterruptedException {
+        changes.load();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        changes.enqueue(event);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        changes.shutdown();
+    }
+
+    private void load(List<Product> all) {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            prices.clear();
+            all.forEach(this::putLocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Map<Integer, Product> changed) {
+        lock.writeLock().lock();
+        try {
+            changed.forEach((id, p) -> {
+                if (p != null) {
+                    putLocked(p);
+                } else {
+                    index.remove(id);
+                    prices.remove(id);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Counts for products matching {@code filter}. Each facet ignores its own
+     * constraint, so the other values of a selected facet keep their counts.
+     *
+     * @throws IllegalArgumentException if the filter's price bucket is malformed
+     */
+    public Map<String, Map<String, Integer>> counts(ProductFilter filter) {
+        ProductFilter f = filter != null ? filter : new ProductFilter();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap category = f.getCategory() == null ? null : index.docs(CATEGORY, f.getCategory());
+            RoaringBitmap brand = f.getBrand() == null ? null : index.docs(BRAND, f.getBrand());
+            RoaringBitmap available = f.getAvailable() == null ? null : index.docs(AVAILABLE, f.getAvailable().toString());
+            RoaringBitmap price = priceMatchesLocked(f);
+
+            Map<String, Map<String, Integer>> out = new LinkedHashMap<>();
+            out.put(CATEGORY, countsLocked(CATEGORY, and(brand, available, price)));
+            out.put(BRAND, countsLocked(BRAND, and(category, available, price)));
+            out.put(AVAILABLE, countsLocked(AVAILABLE, and(category, brand, price)));
+            out.put(PRICE, countsLocked(PRICE, and(category, brand, available)));
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Counts among the given products, e.g. search hits. */
+    public Map<String, Map<String, Integer>> counts(Collection<Integer> productIds) {
+        RoaringBitmap within = new RoaringBitmap();
+        productIds.forEach(within::add);
+        lock.readLock().lock();
+        try {
+            Map<String, Map<String, Integer>> out = new LinkedHashMap<>();
+            for (String field : List.of(CATEGORY, BRAND, AVAILABLE, PRICE)) {
+                out.put(field, countsLocked(field, within));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putLocked(Product p) {
+        Map<String, String> values = new HashMap<>();
+        values.put(CATEGORY, p.getCategory());
+        values.put(BRAND, p.getBrand());
+        values.put(AVAILABLE, Boolean.toString(p.isProductAvailable()));
+        values.put(PRICE, p.getPrice() == null ? null : buckets.label(buckets.bucketOf(p.getPrice())));
+        index.put(p.getId(), values);
+        if (p.getPrice() != null) {
+            prices.put(p.getId(), p.getPrice());
+        } else {
+            prices.remove(p.getId());
+        }
+    }
+
+    // most frequent first; price buckets keep their natural order
+    private Map<String, Integer> countsLocked(String field, RoaringBitmap within) {
+        Map<String, Integer> counts = index.counts(field, within);
+        Map<String, Integer> out = new LinkedHashMap<>();
+        if (PRICE.equals(field)) {
+            for (int b = 0; b < buckets.size(); b++) {
+                String label = buckets.label(b);
+                if (counts.containsKey(label)) out.put(label, counts.get(label));
+            }
+        } else {
+            counts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .forEach(e -> out.put(e.getKey(), e.getValue()));
+        }
+        return out;
+    }
+
+    // null filters don't constrain; with none set, everything matches
+    private RoaringBitmap and(RoaringBitmap... filters) {
+        List<RoaringBitmap> set = new ArrayList<>();
+        for (RoaringBitmap b : filters) {
+            if (b != null) set.add(b);
+        }
+        if (set.isEmpty()) return index.all();
+        if (set.size() == 1) return set.get(0);
+        return FastAggregation.and(set.iterator());
+    }
+
+    /**
+     * Docs within the filter's price constraints (min/max inclusive, bucket half-open),
+     * or null if there are none. Buckets entirely inside the range are OR-ed whole;
+     * only the at most two buckets the range cuts through are checked doc by doc.
+     */
+    private RoaringBitmap priceMatchesLocked(ProductFilter f) {
+        BigDecimal min = f.getMinPrice();
+        BigDecimal maxInclusive = f.getMaxPrice();
+        BigDecimal maxExclusive = null;
+        if (f.getPriceBucket() != null) {
+            PriceBuckets.Range r = PriceBuckets.parse(f.getPriceBucket());
+            if (min == null || r.min().compareTo(min) > 0) min = r.min();
+            maxExclusive = r.maxExclusive();
+        }
+        if (min == null && maxInclusive == null && maxExclusive == null) return null;
+
+        RoaringBitmap out = new RoaringBitmap();
+        for (int b = 0; b < buckets.size(); b++) {
+            PriceBuckets.Range r = buckets.range(b);
+            RoaringBitmap docs = index.docs(PRICE, buckets.label(b));
+            if (docs.isEmpty()) continue;
+
+            BigDecimal upper = r.maxExclusive();
+            boolean below = min != null && upper != null && upper.compareTo(min) <= 0;
+            boolean above = (maxInclusive != null && r.min().compareTo(maxInclusive) > 0)
+                    || (maxExclusive != null && r.min().compareTo(maxExclusive) >= 0);
+            if (below || above) continue;
+
+            boolean inside = (min == null || r.min().compareTo(min) >= 0)
+                    && (upper == null
+                        ? maxInclusive == null && maxExclusive == null
+                        : (maxInclusive == null || upper.compareTo(maxInclusive) <= 0)
+                          && (maxExclusive == null || upper.compareTo(maxExclusive) <= 0));
+            if (inside) {
+                out.or(docs);
+                continue;
+            }
+            for (int doc : docs) {
+                BigDecimal p = Objects.requireNonNull(prices.get(doc));
+                if ((min == null || p.compareTo(min) >= 0)
+                        && (maxInclusive == null || p.compareTo(maxInclusive) <= 0)
+                        && (maxExclusive == null || p.compareTo(maxExclusive) < 0)) {
+                    out.add(doc);
+                }
+            }
+        }
+        return out;
+    }
+}
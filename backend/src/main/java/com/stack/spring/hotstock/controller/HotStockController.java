@@ -0,0 +1,38 @@
+package com.stack.spring.hotstock.controller;
+
+import com.stack.spring.hotstock.dto.HotStockStatus;
+import com.stack.spring.hotstock.service.HotStockService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/hot-stock")
+@PreAuthorize("hasRole('ADMIN')")
+public class HotStockController {
+
+    private final HotStockService hotStock;
+
+    public HotStockController(HotStockService hotStock) {
+        this.hotStock = hotStock;
+    }
+
+    @GetMapping
+    public List<HotStockStatus> list() {
+        return hotStock.status();
+    }
+
+    /** Splits a product's stock over {@code stripes} counters for a flash sale. */
+    @PutMapping("/{productId}")
+    public HotStockStatus enable(@PathVariable int productId, @RequestParam(defaultValue = "16") int stripes) {
+        return hotStock.enable(productId, stripes);
+    }
+
+    @DeleteMapping("/{productId}")
+    public ResponseEntity<Void> disable(@PathVariable int productId) {
+        hotStock.disable(productId);
+        return ResponseEntity.noContent().build();
+    }
+}
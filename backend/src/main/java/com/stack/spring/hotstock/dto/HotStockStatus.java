@@ -0,0 +1,19 @@
+package com.stack.spring.hotstock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A product in hot-SKU mode: how many stripes it has, the units they can still
+ * sell and the sales not yet settled into the product's stock.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotStockStatus {
+    private int productId;
+    private int stripes;
+    private long striped;
+    private long unsettledSold;
+}
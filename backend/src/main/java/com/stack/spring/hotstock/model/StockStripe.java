@@ -0,0 +1,39 @@
+package com.stack.spring.hotstock.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * One of a hot product's stock counters. {@code quantity} is what this stripe may still
+ * sell; {@code sold} is what it sold since the last settle into the product row.
+ * Only written with SQL by {@code HotStockService}; mapped so the table is created.
+ */
+@Entity
+@IdClass(StockStripe.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockStripe {
+
+    @Id
+    private int productId;
+    @Id
+    private int stripe;
+
+    private int quantity;
+    private int sold;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private int productId;
+        private int stripe;
+    }
+}
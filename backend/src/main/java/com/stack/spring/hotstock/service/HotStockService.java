@@ -0,0 +1,337 @@
+package com.stack.spring.hotstock.service;
+
+import com.stack.spring.event.ProductChangedEvent;
+import com.stack.spring.hotstock.dto.HotStockStatus;
+import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.service.ProductCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Hot-SKU mode: most of a product's sellable stock is dealt out to N {@code stock_stripe}
+ * rows, so concurrent sales lock one of N rows instead of all queueing on the product row.
+ * A sale picks a stripe at random and falls over to the others when it runs dry; if
+ * none can cover it, it waits for all of them and sells from one that now can, or else
+ * from the row (pulling the stripes back first if the row is short too).
+ * <p>
+ * The row keeps {@code app.hot-stock.row-share} of what is left to sell, so holds, which
+ * always go through the row, normally never touch the stripes.
+ * <p>
+ * Stock stays exact: dealt units are counted in {@code product.striped_quantity} and
+ * excluded from what the product row itself sells or reserves, and stripe sales come
+ * off {@code stock_quantity} when {@link #settleAll} folds them in (every
+ * {@code app.hot-stock.settle-interval}), which also re-deals the stripes evenly. Until
+ * then the product's stock reads a little high.
+ * <p>
+ * Lock order, on every path: stripes before rows; stripes product by product in id order
+ * and each product's in stripe order (a sale waiting for a single stripe holds no other);
+ * rows in id order, all locked before any of them is written.
+ */
+@Service
+public class HotStockService {
+
+    private static final String SELL = "UPDATE stock_stripe SET quantity = quantity - ?, sold = sold + ? " +
+            "WHERE product_id = ? AND stripe = ?";
+    private static final String SELL_IF_ENOUGH = SELL + " AND quantity >= ?";
+    private static final String LOCK_STRIPES = "SELECT stripe, quantity, sold FROM stock_stripe " +
+            "WHERE product_id = ? ORDER BY stripe FOR UPDATE";
+    private static final String ROW_AVAILABLE = "SELECT stock_quantity - reserved_quantity - striped_quantity " +
+            "FROM product WHERE id = ?";
+    private static final String LOCK_PRODUCT = ROW_AVAILABLE + " FOR UPDATE";
+    private static final String SET_STRIPE = "UPDATE stock_stripe SET quantity = ?, sold = 0 " +
+            "WHERE product_id = ? AND stripe = ?";
+
+    private record Stripe(int stripe, int quantity, int sold) {}
+
+    private final ProductRepo productRepo;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ProductCache productCache;
+    private final ApplicationEventPublisher events;
+    private final int maxStripes;
+    private final double rowShare;
+
+    // product id -> stripe count as of the last settle; a node that has not seen a product
+    // go hot yet simply sells from its row, which is still correct
+    private volatile Map<Integer, Integer> stripeCounts = Map.of();
+
+    public HotStockService(ProductRepo productRepo, JdbcTemplate jdbc, PlatformTransactionManager txManager,
+                           ProductCache productCache, ApplicationEventPublisher events,
+                           @Value("${app.hot-stock.max-stripes:64}") int maxStripes,
+                           @Value("${app.hot-stock.row-share:0.25}") double rowShare) {
+        this.productRepo = productRepo;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.productCache = productCache;
+        this.events = events;
+        this.maxStripes = maxStripes;
+        this.rowShare = rowShare;
+    }
+
+    /**
+     * {@link ProductRepo#decrementStock} that sells hot products from their stripes.
+     * Same contract: caller's transaction, which rolls back if any ids are returned.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Integer> decrementStock(Map<Integer, Integer> qtyByProductId) {
+        return decrementStock(qtyByProductId, Set.of());
+    }
+
+    /**
+     * {@link #decrementStock(Map)} that also locks the rows of {@code alsoLock}, in the same
+     * id-ordered pass as its own, for callers that write more product rows afterwards.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Integer> decrementStock(Map<Integer, Integer> qtyByProductId, Collection<Integer> alsoLock) {
+        Map<Integer, Integer> counts = stripeCounts;
+        Map<Integer, Integer> fromRow = new HashMap<>();
+        Map<Integer, List<Stripe>> locked = new HashMap<>();
+        for (Map.Entry<Integer, Integer> e : new TreeMap<>(qtyByProductId).entrySet()) {
+            int productId = e.getKey(), qty = e.getValue();
+            Integer stripes = counts.get(productId);
+            if (stripes == null) {
+                fromRow.put(productId, qty);
+                continue;
+            }
+            if (sellFromAnyStripe(productId, qty, stripes)) continue;
+
+            // no stripe had enough: wait for all of them, then look again
+            List<Stripe> all = lockStripes(productId);
+            Optional<Stripe> enough = all.stream().filter(st -> st.quantity() >= qty).findFirst();
+            if (enough.isPresent()) {
+                jdbc.update(SELL, qty, qty, productId, enough.get().stripe());
+            } else {
+                locked.put(productId, all);
+                fromRow.put(productId, qty);
+            }
+        }
+        lockRows(locked, fromRow, alsoLock);
+        return productRepo.decrementStock(fromRow);
+    }
+
+    /** Whether this node currently sells {@code productId} from stripes. */
+    public boolean isHot(int productId) {
+        return stripeCounts.containsKey(productId);
+    }
+
+    /**
+     * {@link ProductRepo#reserveStock}, pulling a hot product's stripes back into its row
+     * first when the row alone cannot cover the hold. A hot id can still come back short
+     * if other holds drained the row after it was looked at; retrying then pulls the
+     * stripes back.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Integer> reserveStock(Map<Integer, Integer> qtyByProductId) {
+        Map<Integer, Integer> counts = stripeCounts;
+        Map<Integer, List<Stripe>> locked = new HashMap<>();
+        for (Map.Entry<Integer, Integer> e : new TreeMap<>(qtyByProductId).entrySet()) {
+            if (counts.containsKey(e.getKey()) && rowAvailable(e.getKey()) < e.getValue()) {
+                locked.put(e.getKey(), lockStripes(e.getKey())); // before any row
+            }
+        }
+        lockRows(locked, qtyByProductId, Set.of());
+        return productRepo.reserveStock(qtyByProductId);
+    }
+
+    /**
+     * For writes that set stock outright (admin edits, imports), in the caller's transaction
+     * and before the write: settles the stripes of any hot product among {@code productIds}
+     * and takes their units back into its row, so the new figure is neither lowered again
+     * by stripe sales made before it nor partly still dealt out. Rows stay locked until the
+     * caller commits; the next settle deals the stripes out again.
+     *
+     * @return units held for unpaid orders by product id, which the new stock must cover;
+     *         missing ids are left out
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Integer, Integer> prepareStockWrite(Collection<Integer> productIds) {
+        Map<Integer, Integer> reserved = new HashMap<>();
+        if (productIds.isEmpty()) return reserved;
+        String in = String.join(", ", Collections.nCopies(productIds.size(), "?"));
+        Object[] ids = productIds.toArray();
+
+        // stripes product by product in id order, then rows in id order; checked in the
+        // database, since another node may have made a product hot since the last settle
+        Map<Integer, List<Stripe>> locked = new TreeMap<>();
+        jdbc.query("SELECT product_id, stripe, quantity, sold FROM stock_stripe WHERE product_id IN (" + in + ") " +
+                        "ORDER BY product_id, stripe FOR UPDATE",
+                rs -> {
+                    locked.computeIfAbsent(rs.getInt(1), k -> new ArrayList<>())
+                            .add(new Stripe(rs.getInt(2), rs.getInt(3), rs.getInt(4)));
+                }, ids);
+        jdbc.query("SELECT id, reserved_quantity FROM product WHERE id IN (" + in + ") ORDER BY id FOR UPDATE",
+                rs -> { reserved.put(rs.getInt(1), rs.getInt(2)); }, ids);
+        locked.forEach(this::collapse);
+        return reserved;
+    }
+
+    /** Puts a product in hot mode with {@code stripes} stripes, or re-stripes it. */
+    public HotStockStatus enable(int productId, int stripes) {
+        if (stripes < 1 || stripes > maxStripes) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "stripes must be between 1 and " + maxStripes);
+        }
+        tx.executeWithoutResult(s -> {
+            collapse(productId, lockStripes(productId)); // re-striping: stripes before the row
+            if (jdbc.queryForList(LOCK_PRODUCT, Integer.class, productId).isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found: " + productId);
+            }
+            jdbc.update("DELETE FROM stock_stripe WHERE product_id = ?", productId);
+            List<Object[]> rows = new ArrayList<>(stripes);
+            for (int i = 0; i < stripes; i++) {
+                rows.add(new Object[]{productId, i});
+            }
+            jdbc.batchUpdate("INSERT INTO stock_stripe (product_id, stripe, quantity, sold) VALUES (?, ?, 0, 0)", rows);
+            settle(productId);
+        });
+        Map<Integer, Integer> counts = new HashMap<>(stripeCounts);
+        counts.put(productId, stripes);
+        stripeCounts = Map.copyOf(counts);
+        return status(productId);
+    }
+
+    /** Takes a product out of hot mode: settles its stripes and gives their units back to the row. */
+    public void disable(int productId) {
+        tx.executeWithoutResult(s -> {
+            collapse(productId, lockStripes(productId));
+            jdbc.update("DELETE FROM stock_stripe WHERE product_id = ?", productId);
+        });
+        Map<Integer, Integer> counts = new HashMap<>(stripeCounts);
+        counts.remove(productId);
+        stripeCounts = Map.copyOf(counts);
+        changed(List.of(productId));
+    }
+
+    public List<HotStockStatus> status() {
+        return jdbc.query("SELECT product_id, COUNT(*), SUM(quantity), SUM(sold) FROM stock_stripe " +
+                        "GROUP BY product_id ORDER BY product_id",
+                (rs, i) -> new HotStockStatus(rs.getInt(1), rs.getInt(2), rs.getLong(3), rs.getLong(4)));
+    }
+
+    /**
+     * Folds every hot product's stripe sales into its stock and re-deals its stripes,
+     * one transaction per product. Also picks up products other nodes made hot.
+     */
+    public void settleAll() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        jdbc.query("SELECT product_id, COUNT(*) FROM stock_stripe GROUP BY product_id",
+                rs -> { counts.put(rs.getInt(1), rs.getInt(2)); });
+        stripeCounts = Map.copyOf(counts);
+
+        List<Integer> sold = new ArrayList<>();
+        for (Integer productId : counts.keySet()) {
+            if (Boolean.TRUE.equals(tx.execute(s -> settle(productId)))) sold.add(productId);
+        }
+        if (!sold.isEmpty()) changed(sold);
+    }
+
+    private HotStockStatus status(int productId) {
+        return status().stream().filter(st -> st.getProductId() == productId).findFirst().orElse(null);
+    }
+
+    /**
+     * Tries each stripe once from a random one. A conditional UPDATE that waited for its
+     * row and then found it too low can keep the row's lock (H2 does), so every attempt
+     * that sells nothing rolls back to a savepoint: a sale waiting for a stripe never holds
+     * another, and holds none when it goes on to wait for all of them.
+     */
+    private boolean sellFromAnyStripe(int productId, int qty, int stripes) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        return Boolean.TRUE.equals(jdbc.execute((ConnectionCallback<Boolean>) con -> {
+            for (int i = 0; i < stripes; i++) {
+                Savepoint attempt = con.setSavepoint();
+                if (jdbc.update(SELL_IF_ENOUGH, qty, qty, productId, (start + i) % stripes, qty) == 1) return true;
+                con.rollback(attempt);
+            }
+            return false;
+        }));
+    }
+
+    /**
+     * Locks the rows of {@code qtyByProductId} and {@code alsoLock} in id order, then pulls
+     * the stripes of each {@code locked} product back into its row where the row cannot
+     * cover the quantity. The caller already holds those stripes.
+     */
+    private void lockRows(Map<Integer, List<Stripe>> locked, Map<Integer, Integer> qtyByProductId,
+                          Collection<Integer> alsoLock) {
+        if (locked.isEmpty() && alsoLock.isEmpty()) return;
+        Set<Integer> ids = new HashSet<>(qtyByProductId.keySet());
+        ids.addAll(alsoLock);
+        Map<Integer, Integer> available = productRepo.lockAvailable(ids);
+        locked.forEach((productId, stripes) -> {
+            if (available.getOrDefault(productId, 0) < qtyByProductId.get(productId)) collapse(productId, stripes);
+        });
+    }
+
+    /** Settles locked stripes and takes all their units back into the product row. */
+    private void collapse(int productId, List<Stripe> stripes) {
+        int sold = stripes.stream().mapToInt(Stripe::sold).sum();
+        int left = stripes.stream().mapToInt(Stripe::quantity).sum();
+        if (sold == 0 && left == 0) return;
+        jdbc.update("UPDATE stock_stripe SET quantity = 0, sold = 0 WHERE product_id = ?", productId);
+        productRepo.settleStripes(productId, sold, -left);
+    }
+
+    /**
+     * Folds stripe sales into stock and deals out what is left to sell so that the row
+     * keeps its share and the stripes hold the rest evenly (taking units back if stock
+     * was lowered below what they hold).
+     *
+     * @return whether anything was sold since the last settle
+     */
+    private boolean settle(int productId) {
+        List<Stripe> stripes = lockStripes(productId); // stripes before the row, like a sale
+        if (stripes.isEmpty()) return false;
+        int sold = stripes.stream().mapToInt(Stripe::sold).sum();
+        int left = stripes.stream().mapToInt(Stripe::quantity).sum();
+        int spare = jdbc.queryForObject(LOCK_PRODUCT, Integer.class, productId);
+        int sellable = spare + left;
+        int total = sellable <= 0 ? 0 : sellable - (int) Math.ceil(sellable * rowShare);
+        int dealt = total - left;
+        if (sold == 0 && dealt == 0) return false; // unchanged since the last deal
+
+        int n = stripes.size();
+        List<Object[]> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(new Object[]{total / n + (i < total % n ? 1 : 0), productId, stripes.get(i).stripe()});
+        }
+        jdbc.batchUpdate(SET_STRIPE, rows);
+        productRepo.settleStripes(productId, sold, dealt);
+        return sold > 0;
+    }
+
+    private int rowAvailable(int productId) {
+        List<Integer> available = jdbc.queryForList(ROW_AVAILABLE, Integer.class, productId);
+        return available.isEmpty() ? 0 : available.get(0);
+    }
+
+    private List<Stripe> lockStripes(int productId) {
+        return jdbc.query(LOCK_STRIPES, (rs, i) -> new Stripe(rs.getInt(1), rs.getInt(2), rs.getInt(3)), productId);
+    }
+
+    private void changed(List<Integer> productIds) {
+        productCache.evict(productIds);
+        events.publishEvent(ProductChangedEvent.saved(productRepo.findAllById(productIds)));
+    }
+}
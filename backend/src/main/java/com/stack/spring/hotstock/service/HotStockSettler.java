@@ -0,0 +1,21 @@
+package com.stack.spring.hotstock.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/** Periodically folds hot products' stripe sales into their stock and re-deals the stripes. */
+@Component
+public class HotStockSettler {
+
+    private final HotStockService hotStock;
+
+    public HotStockSettler(HotStockService hotStock) {
+        this.hotStock = hotStock;
+    }
+
+    @Scheduled(initialDelayString = "${app.hot-stock.settle-interval:2s}",
+            fixedDelayString = "${app.hot-stock.settle-interval:2s}")
+    public void settle() {
+        hotStock.settleAll();
+    }
+}
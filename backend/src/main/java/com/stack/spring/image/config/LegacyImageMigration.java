@@ -0,0 +1,86 @@
+package com.stack.spring.image.config;
+
+import com.stack.spring.image.service.DbImageStore;
+import com.stack.spring.image.service.ImageStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Moves of image bytes into the active {@link ImageStore}: the old
+ * {@code product.image_data} blobs (once), and, if {@code app.images.copy-from-db} is
+ * set, copies of the {@code product_image} rows when the store is not the database.
+ * Those rows are never deleted, so the database keeps a durable copy. Rows are read
+ * one at a time so only a single image is on the heap. Keys are content hashes, so
+ * {@code product.image_key} stays valid whichever store holds the bytes.
+ */
+@Configuration
+public class LegacyImageMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(LegacyImageMigration.class);
+
+    @Bean
+    @Order(0)
+    CommandLineRunner migrateLegacyProductImages(JdbcTemplate jdbc, ImageStore imageStore) {
+        return args -> {
+            List<String> types = jdbc.queryForList(
+                    "SELECT data_type FROM information_schema.columns " +
+                            "WHERE table_name = 'product' AND column_name = 'image_data'",
+                    String.class);
+            if (types.isEmpty()) return;
+
+            // Hibernate 6 maps @Lob byte[] to a large object (oid) on Postgres
+            boolean largeObject = "oid".equalsIgnoreCase(types.get(0));
+            String dataExpr = largeObject ? "lo_get(image_data)" : "image_data";
+
+            List<Integer> ids = jdbc.queryForList(
+                    "SELECT id FROM product WHERE image_data IS NOT NULL", Integer.class);
+
+            for (Integer id : ids) {
+                jdbc.query("SELECT image_type, " + dataExpr + " AS data FROM product WHERE id = ?",
+                        rs -> {
+                            String key = imageStore.put(rs.getBytes("data"), rs.getString("image_type"));
+                            jdbc.update("UPDATE product SET image_key = ? WHERE id = ?", key, id);
+                        },
+                        id);
+            }
+
+            if (largeObject) {
+                jdbc.queryForList("SELECT lo_unlink(image_data) FROM product WHERE image_data IS NOT NULL");
+            }
+            jdbc.execute("ALTER TABLE product DROP COLUMN image_data");
+            log.info("Moved {} legacy product images into the image store", ids.size());
+        };
+    }
+
+    @Bean
+    @Order(1)
+    @ConditionalOnProperty(name = "app.images.copy-from-db", havingValue = "true")
+    CommandLineRunner copyProductImageTable(JdbcTemplate jdbc, ImageStore imageStore) {
+        return args -> {
+            if (imageStore instanceof DbImageStore) return;
+
+            int copied = 0;
+            for (String key : jdbc.queryForList("SELECT image_key FROM product_image", String.class)) {
+                if (imageStore.open(key).isPresent()) continue; // copied on an earlier start
+                jdbc.query("SELECT content_type, data FROM product_image WHERE image_key = ?",
+                        rs -> {
+                            // keep the key as-is: variant rows are keyed by derivation, not content
+                            imageStore.putAt(key, rs.getBytes("data"), rs.getString("content_type"));
+                        },
+                        key);
+                copied++;
+            }
+            if (copied > 0) {
+                log.info("Copied {} images from product_image into {}", copied, imageStore.getClass().getSimpleName());
+            }
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package com.stack.spring.image.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Image bytes, kept out of the product row so catalog reads never touch them.
+ * Keyed by the SHA-256 of the content, so identical uploads share one row.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImage {
+
+    @Id
+    @Column(length = 64)
+    private String imageKey;
+
+    private String contentType;
+    private long size;
+
+    private byte[] data;
+
+    /** When these bytes were last put; unused images stored recently are kept. */
+    private Instant storedAt;
+}
@@ -0,0 +1,7 @@
+package com.stack.spring.image.repo;
+
+import com.stack.spring.image.model.ProductImage;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ProductImageRepository extends JpaRepository<ProductImage, String> {
+}
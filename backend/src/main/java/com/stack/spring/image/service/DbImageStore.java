@@ -0,0 +1,90 @@
+package com.stack.spring.image.service;
+
+import com.stack.spring.image.repo.ProductImageRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Keeps image bytes in the {@code product_image} table. The default: the bytes live as
+ * long as the database, whatever happens to the app's disk.
+ */
+@Service
+@ConditionalOnProperty(name = "app.images.store", havingValue = "db", matchIfMissing = true)
+public class DbImageStore implements ImageStore {
+
+    private final ProductImageRepository repo;
+    private final JdbcTemplate jdbc;
+
+    public DbImageStore(ProductImageRepository repo, JdbcTemplate jdbc) {
+        this.repo = repo;
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public String put(InputStream in, String contentType, long maxBytes) throws IOException {
+        // hash on disk first; the row is only written, streamed, when the content is new
+        Path tmp = Files.createTempFile("upload-", ".tmp");
+        try {
+            String key = ImageKeys.stage(in, tmp, maxBytes);
+            Timestamp now = Timestamp.from(Instant.now());
+            if (jdbc.update("UPDATE product_image SET stored_at = ? WHERE image_key = ?", now, key) == 0) {
+                long size = Files.size(tmp);
+                try (InputStream data = Files.newInputStream(tmp)) {
+                    jdbc.update("INSERT INTO product_image (image_key, content_type, size, data, stored_at) " +
+                                    "VALUES (?, ?, ?, ?, ?) " +
+                                    "ON CONFLICT (image_key) DO UPDATE SET stored_at = EXCLUDED.stored_at",
+                            ps -> {
+                                ps.setString(1, key);
+                                ps.setString(2, contentType);
+                                ps.setLong(3, size);
+                                ps.setBinaryStream(4, data, size);
+                                ps.setTimestamp(5, now);
+                            });
+                }
+            }
+            return key;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public void putAt(String key, byte[] data, String contentType) {
+        jdbc.update("INSERT INTO product_image (image_key, content_type, size, data, stored_at) " +
+                        "VALUES (?, ?, ?, ?, ?) ON CONFLICT (image_key) DO NOTHING",
+                key, contentType, data.length, data, Timestamp.from(Instant.now()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Resource> open(String key) {
+        return repo.findById(key).map(img -> new ByteArrayResource(img.getData()));
+    }
+
+    @Override
+    @Transactional
+    public void delete(String key) {
+        repo.deleteById(key);
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteIfStoredBefore(String key, Instant cutoff) {
+        // a concurrent put either bumps stored_at before this row lock, or inserts afresh after it
+        int deleted = jdbc.update("DELETE FROM product_image WHERE image_key = ? " +
+                "AND (stored_at IS NULL OR stored_at < ?)", key, Timestamp.from(cutoff));
+        return deleted == 1 || !repo.existsById(key);
+    }
+}
@@ -0,0 +1,140 @@
+package com.stack.spring.image.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Content-addressed store on local disk: each image lives once at
+ * {@code <dir>/ab/cd/abcd...} named by its SHA-256 (or, for variants, a hash of
+ * the source key and transform). Files are never rewritten, so a key is also a
+ * strong ETag for its bytes. A file's modification time is when it was last put.
+ * <p>
+ * Putting a key and deleting it if stored too long ago take the key's lock, so the
+ * age check and the delete can't straddle a put of the same bytes.
+ */
+@Service
+@ConditionalOnProperty(name = "app.images.store", havingValue = "fs")
+public class FileSystemImageStore implements ImageStore {
+
+    private static final int KEY_LOCKS = 64;
+
+    private final Path root;
+    private final Object[] keyLocks = new Object[KEY_LOCKS];
+
+    public FileSystemImageStore(@Value("${app.images.dir:./data/images}") String dir) throws IOException {
+        this.root = Files.createDirectories(Paths.get(dir).toAbsolutePath().normalize());
+        for (int i = 0; i < KEY_LOCKS; i++) keyLocks[i] = new Object();
+    }
+
+    @Override
+    public String put(InputStream in, String contentType, long maxBytes) throws IOException {
+        // staged next to the final location, so the move below is a rename
+        Path tmp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            String key = ImageKeys.stage(in, tmp, maxBytes);
+            Path target = pathOf(key);
+            synchronized (lockOf(key)) {
+                if (!touch(target)) {
+                    Files.createDirectories(target.getParent());
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            return key;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public void putAt(String key, byte[] data, String contentType) {
+        Path target = pathOf(key);
+        if (Files.exists(target)) return;
+        try {
+            Path tmp = Files.createTempFile(root, "variant-", ".tmp");
+            try {
+                Files.write(tmp, data);
+                synchronized (lockOf(key)) {
+                    if (Files.exists(target)) return; // generated concurrently
+                    Files.createDirectories(target.getParent());
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store image " + key, e);
+        }
+    }
+
+    @Override
+    public Optional<Resource> open(String key) {
+        Path path = pathOf(key);
+        return Files.isRegularFile(path) ? Optional.of(new FileSystemResource(path)) : Optional.empty();
+    }
+
+    @Override
+    public void delete(String key) {
+        Path target = pathOf(key);
+        synchronized (lockOf(key)) {
+            try {
+                Files.deleteIfExists(target);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete image " + key, e);
+            }
+        }
+    }
+
+    @Override
+    public boolean deleteIfStoredBefore(String key, Instant cutoff) {
+        Path target = pathOf(key);
+        synchronized (lockOf(key)) {
+            try {
+                if (Files.getLastModifiedTime(target).toInstant().isBefore(cutoff)) {
+                    Files.delete(target);
+                    return true;
+                }
+                return false;
+            } catch (NoSuchFileException gone) {
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete image " + key, e);
+            }
+        }
+    }
+
+    /** Marks an existing image as stored now; false if there is none. */
+    private static boolean touch(Path target) throws IOException {
+        try {
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException missing) {
+            return false;
+        }
+    }
+
+    private Object lockOf(String key) {
+        return keyLocks[Math.floorMod(key.hashCode(), KEY_LOCKS)];
+    }
+
+    private Path pathOf(String key) {
+        if (!ImageKeys.isKey(key)) {
+            throw new IllegalArgumentException("Invalid image key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+}
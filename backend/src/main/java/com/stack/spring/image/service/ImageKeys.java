@@ -0,0 +1,73 @@
+package com.stack.spring.image.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+final class ImageKeys {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ImageKeys() {}
+
+    static boolean isKey(String key) {
+        return key != null && key.matches("[0-9a-f]{64}");
+    }
+
+    /**
+     * Key for content derived from {@code sourceKey}, e.g. {@code derivedKey(k, "w320")}.
+     * Deterministic, so a variant can be found again without an index.
+     */
+    static String derivedKey(String sourceKey, String transform) {
+        byte[] name = (sourceKey + "/" + transform).getBytes(StandardCharsets.UTF_8);
+        return HexFormat.of().formatHex(newDigest().digest(name));
+    }
+
+    /**
+     * Copies {@code in} to {@code out}, hashing on the way, and returns the content key.
+     *
+     * @throws ImageTooLargeException as soon as more than {@code maxBytes} have been read
+     */
+    static String copyAndHash(InputStream in, OutputStream out, long maxBytes) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buf = new byte[BUFFER_SIZE];
+        long total = 0;
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            total += n;
+            if (total > maxBytes) {
+                throw new ImageTooLargeException(maxBytes);
+            }
+            digest.update(buf, 0, n);
+            out.write(buf, 0, n);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Streams {@code in} into {@code file}, fsyncs it, and returns the content key.
+     */
+    static String stage(InputStream in, Path file, long maxBytes) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            String key = copyAndHash(in, Channels.newOutputStream(ch), maxBytes);
+            ch.force(true);
+            return key;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.stack.spring.image.service;
+
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Storage for product image bytes. Products only keep the key returned by {@link #put}.
+ */
+public interface ImageStore {
+
+    /**
+     * Streams the content into the store and returns its content key (SHA-256, hex).
+     * The hash and the size limit are checked in the same pass, so the image is never
+     * held on the heap. Storing the same bytes twice returns the same key and keeps one copy,
+     * and counts as storing it again for {@link #deleteIfStoredBefore}.
+     * Once this returns, the bytes are durable.
+     */
+    String put(InputStream in, String contentType, long maxBytes) throws IOException;
+
+    default String put(byte[] data, String contentType) {
+        try {
+            return put(new ByteArrayInputStream(data), contentType, Long.MAX_VALUE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stores bytes under a caller-chosen key, e.g. a resized variant derived from another image.
+     * Does nothing if the key is already present.
+     */
+    void putAt(String key, byte[] data, String contentType);
+
+    Optional<Resource> open(String key);
+
+    void delete(String key);
+
+    /**
+     * Deletes the image unless it was last {@link #put} at or after {@code cutoff}, atomically
+     * with respect to concurrent puts. Returns false only if the image is kept.
+     */
+    boolean deleteIfStoredBefore(String key, Instant cutoff);
+}
@@ -0,0 +1,9 @@
+package com.stack.spring.image.service;
+
+/** An image being stored went over its size limit; nothing was kept. */
+public class ImageTooLargeException extends RuntimeException {
+
+    public ImageTooLargeException(long maxBytes) {
+        super("Image is larger than " + maxBytes + " bytes");
+    }
+}
@@ -0,0 +1,187 @@
+package com.stack.spring.image.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resized copies of product images (e.g. card thumbnails), stored next to the
+ * original under a key derived from the source key and width.
+ * <p>
+ * Variants are generated in the background after an upload, on a small bounded
+ * pool that drops work when full; anything missing is generated on first request.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private final ImageStore imageStore;
+    private final Map<String, Integer> variants;
+    private final ThreadPoolExecutor executor;
+
+    // one generation per variant key at a time; concurrent callers share it
+    private final Map<String, CompletableFuture<Optional<Resource>>> inFlight = new ConcurrentHashMap<>();
+
+    public ImageVariantService(ImageStore imageStore,
+                               @Value("${app.images.variants:thumb=160,card=320,detail=640}") String variants,
+                               @Value("${app.images.variant-threads:2}") int threads,
+                               @Value("${app.images.variant-queue:256}") int queueSize) {
+        this.imageStore = imageStore;
+        this.variants = Collections.unmodifiableMap(parseVariants(variants));
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                r -> {
+                    Thread t = new Thread(r, "image-variants");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.DiscardPolicy()); // dropped variants are made lazily
+    }
+
+    /**
+     * Width to serve for a request: a named variant, or the smallest configured width
+     * that covers {@code w}. Empty means "send the original".
+     */
+    public Optional<Integer> resolveWidth(String variant, Integer w) {
+        if (variant != null && !variant.isBlank()) {
+            return Optional.ofNullable(variants.get(variant.trim().toLowerCase()));
+        }
+        if (w == null || w <= 0) return Optional.empty();
+        return variants.values().stream().filter(width -> width >= w).min(Integer::compare);
+    }
+
+    public String variantKey(String sourceKey, int width) {
+        return ImageKeys.derivedKey(sourceKey, "w" + width);
+    }
+
+    public String contentType(String sourceContentType) {
+        return "png".equals(formatFor(sourceContentType)) ? "image/png" : "image/jpeg";
+    }
+
+    /**
+     * Opens the variant, generating and storing it if it is missing.
+     * Empty if the source is gone or cannot be decoded by ImageIO.
+     */
+    public Optional<Resource> open(String sourceKey, String sourceContentType, int width) {
+        String key = variantKey(sourceKey, width);
+        Optional<Resource> stored = imageStore.open(key);
+        if (stored.isPresent()) return stored;
+
+        CompletableFuture<Optional<Resource>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<Resource>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) return running.join();
+        try {
+            generate(sourceKey, sourceContentType, width);
+            Optional<Resource> result = imageStore.open(key);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    /** Queues generation of every configured variant; never blocks the caller. */
+    public void generateAllAsync(String sourceKey, String sourceContentType) {
+        for (int width : variants.values()) {
+            executor.execute(() -> {
+                try {
+                    open(sourceKey, sourceContentType, width);
+                } catch (RuntimeException e) {
+                    log.warn("Variant w{} of image {} failed: {}", width, sourceKey, e.getMessage());
+                }
+            });
+        }
+    }
+
+    public void deleteAll(String sourceKey) {
+        for (int width : variants.values()) {
+            imageStore.delete(variantKey(sourceKey, width));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void generate(String sourceKey, String sourceContentType, int width) {
+        Resource source = imageStore.open(sourceKey).orElse(null);
+        if (source == null) return;
+
+        BufferedImage original;
+        try (InputStream in = source.getInputStream()) {
+            original = ImageIO.read(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read image " + sourceKey, e);
+        }
+        if (original == null) return; // format ImageIO can't decode: callers fall back to the original
+
+        String format = formatFor(sourceContentType);
+        BufferedImage resized = resize(original, width, "png".equals(format));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(resized, format, out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode variant of " + sourceKey, e);
+        }
+        imageStore.putAt(variantKey(sourceKey, width), out.toByteArray(), contentType(sourceContentType));
+    }
+
+    private static BufferedImage resize(BufferedImage src, int maxWidth, boolean keepAlpha) {
+        int w = Math.min(maxWidth, src.getWidth());
+        int h = Math.max(1, (int) Math.round(src.getHeight() * (w / (double) src.getWidth())));
+
+        BufferedImage dst = new BufferedImage(w, h, keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    // PNG/GIF may carry transparency; everything else is served as JPEG
+    private static String formatFor(String contentType) {
+        String type = contentType == null ? "" : contentType.toLowerCase();
+        return type.contains("png") || type.contains("gif") ? "png" : "jpeg";
+    }
+
+    private static Map<String, Integer> parseVariants(String spec) {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length == 2) {
+                map.put(kv[0].trim().toLowerCase(), Integer.parseInt(kv[1].trim()));
+            }
+        }
+        return map;
+    }
+}
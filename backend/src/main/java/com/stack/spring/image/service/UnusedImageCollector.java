@@ -0,0 +1,72 @@
+package com.stack.spring.image.service;
+
+import com.stack.spring.repo.ProductRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deletes images that products stopped pointing at, some time later.
+ * <p>
+ * Images are shared by content, so an upload can get back the key of an image that is
+ * being released, and only point a product at it once its transaction commits. Checking
+ * for references at release time races with that; instead released keys are collected
+ * every {@code app.images.unused-sweep-interval}, and an image is only deleted if no
+ * product points at it and it was not stored again within {@code app.images.unused-grace}
+ * (longer than any upload or import takes to commit).
+ * <p>
+ * Released keys are kept in memory; ones lost to a restart are left on disk, never
+ * deleted while in use.
+ */
+@Component
+public class UnusedImageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(UnusedImageCollector.class);
+
+    private final ProductRepo productRepo;
+    private final ImageStore imageStore;
+    private final ImageVariantService imageVariants;
+    private final Duration grace;
+
+    private final Set<String> released = ConcurrentHashMap.newKeySet();
+
+    public UnusedImageCollector(ProductRepo productRepo, ImageStore imageStore, ImageVariantService imageVariants,
+                                @Value("${app.images.unused-grace:24h}") Duration grace) {
+        this.productRepo = productRepo;
+        this.imageStore = imageStore;
+        this.imageVariants = imageVariants;
+        this.grace = grace;
+    }
+
+    /** Marks an image key as no longer needed by the caller; it goes once nobody else uses it. */
+    public void release(String imageKey) {
+        if (imageKey != null) released.add(imageKey);
+    }
+
+    @Scheduled(initialDelayString = "${app.images.unused-sweep-interval:1h}",
+            fixedDelayString = "${app.images.unused-sweep-interval:1h}")
+    public void collect() {
+        Instant cutoff = Instant.now().minus(grace);
+        int deleted = 0;
+        for (String key : released) {
+            if (productRepo.existsByImageKey(key)) {
+                released.remove(key); // in use again; a later release queues it anew
+            } else if (imageStore.deleteIfStoredBefore(key, cutoff)) {
+                imageVariants.deleteAll(key);
+                released.remove(key);
+                deleted++;
+            }
+            // otherwise stored again recently: an upload may be about to use it, look again next time
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} unused images", deleted);
+        }
+    }
+}
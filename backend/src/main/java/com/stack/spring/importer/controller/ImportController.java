@@ -0,0 +1,40 @@
+package com.stack.spring.importer.controller;
+
+import com.stack.spring.importer.dto.ImportReport;
+import com.stack.spring.importer.service.ProductImportService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("/api/admin/import")
+@PreAuthorize("hasRole('ADMIN')")
+public class ImportController {
+
+    private final ProductImportService importService;
+
+    public ImportController(ProductImportService importService) {
+        this.importService = importService;
+    }
+
+    /**
+     * Bulk create/update: {@code file} is CSV (header row) or NDJSON, {@code images} an
+     * optional zip whose entries rows name in their {@code image} column. Answers 200
+     * with per-row errors even when some rows were rejected.
+     */
+    @PostMapping(value = "/products", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportReport> importProducts(
+            @RequestPart("file") MultipartFile file,
+            @RequestPart(value = "images", required = false) MultipartFile images,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) Integer chunkSize
+    ) {
+        return ResponseEntity.ok(importService.importProducts(file, format, images, chunkSize));
+    }
+}
@@ -0,0 +1,14 @@
+package com.stack.spring.importer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A rejected row: its 1-based number in the file (data rows for CSV, lines for NDJSON) and why. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportError {
+    private long row;
+    private String message;
+}
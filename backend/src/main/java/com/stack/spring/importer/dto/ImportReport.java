@@ -0,0 +1,24 @@
+package com.stack.spring.importer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Rows are committed chunk by chunk, so everything counted
+ * as inserted or updated is saved even if other rows failed. Only the first
+ * {@code app.import.max-errors} errors are listed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReport {
+    private long rows;
+    private long inserted;
+    private long updated;
+    private long failed;
+    private List<ImportError> errors;
+    private boolean errorsTruncated;
+}
@@ -0,0 +1,27 @@
+package com.stack.spring.importer.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One product of an import file. With {@code id} it updates that product, without
+ * it creates a new one. {@code image} names an entry of the images archive.
+ * Property names match the CSV export, so an export can be edited and re-imported.
+ */
+@Data
+@NoArgsConstructor
+public class ImportRow {
+    private Integer id;
+    private String name;
+    private String description;
+    private String brand;
+    private String category;
+    private BigDecimal price;
+    private LocalDate releaseDate;
+    private Boolean productAvailable;
+    private Integer stockQuantity;
+    private String image;
+}
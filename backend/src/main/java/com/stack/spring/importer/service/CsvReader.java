@@ -0,0 +1,87 @@
+package com.stack.spring.importer.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming RFC 4180 reader: comma separated, fields optionally quoted with
+ * {@code "} (doubled inside quotes), quoted fields may span lines, LF or CRLF line ends.
+ * Holds one record at a time.
+ */
+final class CsvReader {
+
+    private final Reader in;
+    private final StringBuilder field = new StringBuilder();
+    private int peeked = -2; // -2: nothing peeked
+
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /** The next record, or null at end of input. Blank lines are skipped. */
+    List<String> next() throws IOException {
+        List<String> record = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;   // inside a quoted field
+        boolean any = false;      // anything read for this record
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                if (quoted) throw new IOException("Unterminated quoted field");
+                if (!any) return null;
+                record.add(field.toString());
+                return record;
+            }
+            if (quoted) {
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> {
+                    quoted = true;
+                    any = true;
+                }
+                case ',' -> {
+                    record.add(field.toString());
+                    field.setLength(0);
+                    any = true;
+                }
+                case '\r', '\n' -> {
+                    if (c == '\r' && peek() == '\n') read();
+                    if (!any) continue; // blank line
+                    record.add(field.toString());
+                    return record;
+                }
+                default -> {
+                    field.append((char) c);
+                    any = true;
+                }
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) peeked = in.read();
+        return peeked;
+    }
+}
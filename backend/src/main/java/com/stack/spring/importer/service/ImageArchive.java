@@ -0,0 +1,95 @@
+package com.stack.spring.importer.service;
+
+import com.stack.spring.image.service.ImageStore;
+import com.stack.spring.image.service.ImageTooLargeException;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The zip of images that import rows refer to by entry name. The upload is moved
+ * to a temp file for random access; each entry is streamed into the
+ * {@link ImageStore} the first time a row asks for it.
+ */
+final class ImageArchive implements Closeable {
+
+    record StoredImage(String name, String contentType, String key) {}
+
+    /** A row's image can't be used; the message is reported for that row. */
+    static final class ImageException extends Exception {
+        ImageException(String message) {
+            super(message);
+        }
+    }
+
+    private final Path file;
+    private final ZipFile zip;
+    private final ImageStore imageStore;
+    private final long maxImageBytes;
+    private final Map<String, StoredImage> stored = new HashMap<>();
+
+    private ImageArchive(Path file, ZipFile zip, ImageStore imageStore, long maxImageBytes) {
+        this.file = file;
+        this.zip = zip;
+        this.imageStore = imageStore;
+        this.maxImageBytes = maxImageBytes;
+    }
+
+    /** An archive over {@code upload}; with no upload every lookup fails. */
+    static ImageArchive open(MultipartFile upload, ImageStore imageStore, long maxImageBytes) throws IOException {
+        if (upload == null || upload.isEmpty()) return new ImageArchive(null, null, imageStore, maxImageBytes);
+        Path file = Files.createTempFile("import-images-", ".zip");
+        try {
+            upload.transferTo(file);
+            return new ImageArchive(file, new ZipFile(file.toFile()), imageStore, maxImageBytes);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    StoredImage store(String name) throws ImageException {
+        StoredImage image = stored.get(name);
+        if (image != null) return image;
+        if (zip == null) throw new ImageException("image '" + name + "' given but no images archive uploaded");
+
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null || entry.isDirectory()) throw new ImageException("image '" + name + "' not in archive");
+        String contentType = URLConnection.guessContentTypeFromName(name);
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new ImageException("image '" + name + "' is not an image file");
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            image = new StoredImage(fileName(name), contentType, imageStore.put(in, contentType, maxImageBytes));
+        } catch (ImageTooLargeException e) { // over app.images.max-bytes
+            throw new ImageException("image '" + name + "': " + e.getMessage());
+        } catch (IOException e) { // corrupt entry, or the store failed; either way this row is lost
+            throw new ImageException("image '" + name + "': " + e.getMessage());
+        }
+        stored.put(name, image);
+        return image;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (zip == null) return;
+        try {
+            zip.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static String fileName(String entryName) {
+        return entryName.substring(entryName.lastIndexOf('/') + 1);
+    }
+}
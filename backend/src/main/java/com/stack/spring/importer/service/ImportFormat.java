@@ -0,0 +1,28 @@
+package com.stack.spring.importer.service;
+
+import java.util.Locale;
+
+/** Input formats of the bulk import. */
+public enum ImportFormat {
+    CSV, NDJSON;
+
+    /**
+     * {@code format} ({@code csv} or {@code ndjson}) if given, otherwise guessed from the
+     * file name (.csv, .ndjson, .jsonl).
+     *
+     * @throws IllegalArgumentException if neither tells
+     */
+    public static ImportFormat from(String format, String filename) {
+        if (format != null && !format.isBlank()) {
+            return switch (format.trim().toLowerCase(Locale.ROOT)) {
+                case "csv" -> CSV;
+                case "ndjson", "jsonl" -> NDJSON;
+                default -> throw new IllegalArgumentException("Unsupported format: " + format);
+            };
+        }
+        String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) return CSV;
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) return NDJSON;
+        throw new IllegalArgumentException("Can't tell the file format; pass format=csv or format=ndjson");
+    }
+}
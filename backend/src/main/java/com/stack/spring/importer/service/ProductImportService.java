@@ -0,0 +1,377 @@
+package com.stack.spring.importer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stack.spring.dto.ProductRequest;
+import com.stack.spring.event.ProductChangedEvent;
+import com.stack.spring.hotstock.service.HotStockService;
+import com.stack.spring.image.service.ImageStore;
+import com.stack.spring.image.service.ImageVariantService;
+import com.stack.spring.image.service.UnusedImageCollector;
+import com.stack.spring.importer.dto.ImportError;
+import com.stack.spring.importer.dto.ImportReport;
+import com.stack.spring.importer.dto.ImportRow;
+import com.stack.spring.importer.service.ImageArchive.StoredImage;
+import com.stack.spring.model.Product;
+import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.service.ProductCache;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk create/update of products from a CSV or NDJSON file plus an optional zip of images.
+ * <p>
+ * The file is parsed as a stream and rows are validated as they are read. Valid rows
+ * are written in chunks, one transaction and one JDBC batch per chunk. If a chunk
+ * fails, it is retried row by row so that one bad row doesn't sink its neighbours.
+ * Every rejected row is reported with its number and the reason.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    static final int MAX_CHUNK_SIZE = 10_000;
+
+    // ids are allocated up front (see allocateIds), so neither statement needs generated keys back
+    static final String INSERT = "INSERT INTO product (name, description, brand, price, category, release_date, " +
+            "product_available, stock_quantity, image_name, image_type, image_key, id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // a row without an image keeps the product's current one
+    static final String UPDATE = "UPDATE product SET name = ?, description = ?, brand = ?, price = ?, category = ?, " +
+            "release_date = ?, product_available = ?, stock_quantity = ?, image_name = COALESCE(?, image_name), " +
+            "image_type = COALESCE(?, image_type), image_key = COALESCE(?, image_key) WHERE id = ?";
+
+    private record PendingRow(long number, ImportRow row, StoredImage image) {}
+
+    private record Rejected(PendingRow row, String reason) {}
+
+    private record Written(int inserted, int updated, List<Rejected> rejected) {}
+
+    private final ProductRepo productRepo;
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final TransactionTemplate tx;
+    private final ImageStore imageStore;
+    private final ImageVariantService imageVariants;
+    private final UnusedImageCollector unusedImages;
+    private final ProductCache productCache;
+    private final HotStockService hotStock;
+    private final ApplicationEventPublisher events;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int defaultChunkSize;
+    private final int maxErrors;
+    private final long maxImageBytes;
+
+    public ProductImportService(ProductRepo productRepo,
+                                JdbcTemplate jdbc,
+                                NamedParameterJdbcTemplate namedJdbc,
+                                PlatformTransactionManager txManager,
+                                ImageStore imageStore,
+                                ImageVariantService imageVariants,
+                                UnusedImageCollector unusedImages,
+                                ProductCache productCache,
+                                HotStockService hotStock,
+                                ApplicationEventPublisher events,
+                                ObjectMapper objectMapper,
+                                Validator validator,
+                                @Value("${app.import.chunk-size:500}") int defaultChunkSize,
+                                @Value("${app.import.max-errors:1000}") int maxErrors,
+                                @Value("${app.images.max-bytes:10485760}") long maxImageBytes) {
+        this.productRepo = productRepo;
+        this.jdbc = jdbc;
+        this.namedJdbc = namedJdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.imageStore = imageStore;
+        this.imageVariants = imageVariants;
+        this.unusedImages = unusedImages;
+        this.productCache = productCache;
+        this.hotStock = hotStock;
+        this.events = events;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.defaultChunkSize = defaultChunkSize;
+        this.maxErrors = maxErrors;
+        this.maxImageBytes = maxImageBytes;
+    }
+
+    /**
+     * Imports {@code file}; rows with an {@code id} update that product, rows without one
+     * create a product. {@code chunkSize} rows are committed at a time (default
+     * {@code app.import.chunk-size}).
+     */
+    public ImportReport importProducts(MultipartFile file, String format, MultipartFile images, Integer chunkSize) {
+        if (file == null || file.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "file is required");
+        }
+        ImportFormat importFormat;
+        try {
+            importFormat = ImportFormat.from(format, file.getOriginalFilename());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        int chunk = chunkSize == null ? defaultChunkSize : chunkSize;
+        if (chunk < 1 || chunk > MAX_CHUNK_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "chunkSize must be 1.." + MAX_CHUNK_SIZE);
+        }
+
+        Run run = new Run();
+        try (InputStream in = file.getInputStream();
+             ImageArchive archive = ImageArchive.open(images, imageStore, maxImageBytes)) {
+            RowSource rows = RowSource.open(importFormat, in, objectMapper);
+            List<PendingRow> pending = new ArrayList<>(chunk);
+            for (RowSource.SourceRow r = rows.next(); r != null; r = rows.next()) {
+                run.rows++;
+                PendingRow row = prepare(r, archive, run);
+                if (row == null) continue;
+                pending.add(row);
+                if (pending.size() == chunk) {
+                    write(pending, run);
+                    pending.clear();
+                }
+            }
+            if (!pending.isEmpty()) write(pending, run);
+        } catch (IOException e) {
+            // rows committed so far stay committed
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unreadable import after row " + run.rows + ": " + e.getMessage());
+        } finally {
+            run.orphans.forEach(unusedImages::release);
+        }
+        log.info("Product import: {} rows, {} inserted, {} updated, {} failed",
+                run.rows, run.inserted, run.updated, run.failed);
+        return run.report();
+    }
+
+    // Parse error, validation, image; null (and reported) if the row can't be written
+    private PendingRow prepare(RowSource.SourceRow r, ImageArchive archive, Run run) {
+        String error = r.error() != null ? r.error() : validate(r.row());
+        if (error != null) {
+            run.fail(r.number(), error);
+            return null;
+        }
+        StoredImage image = null;
+        String name = r.row().getImage();
+        if (name != null && !name.isBlank()) {
+            try {
+                image = archive.store(name.trim());
+            } catch (ImageArchive.ImageException e) {
+                run.fail(r.number(), e.getMessage());
+                return null;
+            }
+        }
+        return new PendingRow(r.number(), r.row(), image);
+    }
+
+    // same rules as the product form
+    private String validate(ImportRow row) {
+        Set<ConstraintViolation<ProductRequest>> violations = validator.validate(toRequest(row));
+        if (violations.isEmpty()) return null;
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static ProductRequest toRequest(ImportRow row) {
+        ProductRequest req = new ProductRequest();
+        req.setName(row.getName());
+        req.setBrand(row.getBrand());
+        req.setDescription(row.getDescription());
+        req.setCategory(row.getCategory());
+        req.setPrice(row.getPrice());
+        req.setStockQuantity(row.getStockQuantity());
+        req.setReleaseDate(row.getReleaseDate());
+        req.setProductAvailable(Boolean.TRUE.equals(row.getProductAvailable()));
+        return req;
+    }
+
+    private void write(List<PendingRow> rows, Run run) {
+        Written written;
+        try {
+            written = tx.execute(status -> writeChunk(rows));
+        } catch (RuntimeException e) {
+            if (rows.size() == 1) {
+                run.fail(rows.get(0), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            } else {
+                log.debug("Import chunk of {} rows failed, retrying row by row", rows.size(), e);
+                for (PendingRow row : rows) write(List.of(row), run);
+            }
+            return;
+        }
+        run.inserted += written.inserted();
+        run.updated += written.updated();
+        written.rejected().forEach(r -> run.fail(r.row(), r.reason()));
+    }
+
+    // One transaction: batch UPDATE, batch INSERT, then the read models and cache are told
+    private Written writeChunk(List<PendingRow> rows) {
+        List<PendingRow> inserts = rows.stream().filter(r -> r.row().getId() == null).toList();
+        List<Rejected> rejected = new ArrayList<>();
+
+        // stock is set outright: hot products' stripes are settled into their rows first,
+        // and a row may not set stock below what unpaid orders hold
+        List<PendingRow> updates = new ArrayList<>();
+        Map<Integer, Integer> reserved = hotStock.prepareStockWrite(
+                rows.stream().map(r -> r.row().getId()).filter(Objects::nonNull).collect(Collectors.toSet()));
+        for (PendingRow r : rows) {
+            if (r.row().getId() == null) continue;
+            int held = reserved.getOrDefault(r.row().getId(), 0);
+            if (r.row().getStockQuantity() < held) {
+                rejected.add(new Rejected(r, "stockQuantity: below the " + held + " units held for unpaid orders"));
+            } else {
+                updates.add(r);
+            }
+        }
+
+        Map<Integer, String> oldImages = currentImages(updates);
+        List<Integer> updatedIds = new ArrayList<>(updates.size());
+        Set<String> replacedImages = new HashSet<>();
+        if (!updates.isEmpty()) {
+            int[] counts = jdbc.batchUpdate(UPDATE, setter(updates, updates.stream().map(r -> r.row().getId()).toList()));
+            for (int i = 0; i < counts.length; i++) {
+                PendingRow r = updates.get(i);
+                if (counts[i] == 0) {
+                    rejected.add(new Rejected(r, "Product not found: " + r.row().getId()));
+                    continue;
+                }
+                updatedIds.add(r.row().getId());
+                String old = oldImages.get(r.row().getId());
+                if (old != null && r.image() != null && !old.equals(r.image().key())) replacedImages.add(old);
+            }
+        }
+
+        List<Integer> insertedIds = allocateIds(inserts.size());
+        if (!inserts.isEmpty()) {
+            jdbc.batchUpdate(INSERT, setter(inserts, insertedIds));
+        }
+
+        List<Integer> ids = new ArrayList<>(updatedIds);
+        ids.addAll(insertedIds);
+        List<Product> saved = productRepo.findAllById(ids);
+        productCache.evict(updatedIds);
+        events.publishEvent(ProductChangedEvent.saved(saved));
+
+        Map<String, String> newImages = new HashMap<>(); // key -> content type
+        Set<PendingRow> failed = rejected.stream().map(Rejected::row).collect(Collectors.toSet());
+        rows.stream().filter(r -> r.image() != null && !failed.contains(r))
+                .forEach(r -> newImages.put(r.image().key(), r.image().contentType()));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                replacedImages.forEach(unusedImages::release);
+                newImages.forEach(imageVariants::generateAllAsync);
+            }
+        });
+        return new Written(insertedIds.size(), updatedIds.size(), rejected);
+    }
+
+    // image keys of the products that rows are about to give a new image
+    private Map<Integer, String> currentImages(List<PendingRow> updates) {
+        List<Integer> ids = updates.stream().filter(r -> r.image() != null).map(r -> r.row().getId()).toList();
+        if (ids.isEmpty()) return Map.of();
+        Map<Integer, String> images = new HashMap<>();
+        namedJdbc.query("SELECT id, image_key FROM product WHERE id IN (:ids)", Map.of("ids", ids),
+                rs -> { images.put(rs.getInt(1), rs.getString(2)); });
+        return images;
+    }
+
+    // Whole blocks of the pooled id sequence, taken the way Hibernate takes them
+    // (nextval n = ids n-49..n), so these ids never collide with entity inserts
+    private List<Integer> allocateIds(int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        if (count == 0) return ids;
+        int blockSize = Product.ID_ALLOCATION_SIZE;
+        List<Long> blockEnds = jdbc.queryForList("SELECT nextval('" + Product.ID_SEQUENCE + "') FROM generate_series(1, ?)",
+                Long.class, (count + blockSize - 1) / blockSize + 1); // +1: a fresh sequence's first block is just {1}
+        for (long end : blockEnds) {
+            for (long id = Math.max(1, end - blockSize + 1); id <= end && ids.size() < count; id++) {
+                ids.add((int) id);
+            }
+        }
+        return ids;
+    }
+
+    // parameters 1-11 are the columns, 12 the id, in both statements
+    private static BatchPreparedStatementSetter setter(List<PendingRow> rows, List<Integer> ids) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ImportRow row = rows.get(i).row();
+                StoredImage image = rows.get(i).image();
+                ps.setString(1, row.getName());
+                ps.setString(2, row.getDescription());
+                ps.setString(3, row.getBrand());
+                ps.setBigDecimal(4, row.getPrice());
+                ps.setString(5, row.getCategory());
+                ps.setDate(6, Date.valueOf(row.getReleaseDate()));
+                ps.setBoolean(7, Boolean.TRUE.equals(row.getProductAvailable()));
+                ps.setInt(8, row.getStockQuantity());
+                ps.setString(9, image == null ? null : image.name());
+                ps.setString(10, image == null ? null : image.contentType());
+                ps.setString(11, image == null ? null : image.key());
+                ps.setInt(12, ids.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        };
+    }
+
+    // Tally of one import
+    private final class Run {
+        long rows;
+        long inserted;
+        long updated;
+        long failed;
+        final List<ImportError> errors = new ArrayList<>();
+        final Set<String> orphans = new HashSet<>(); // images stored for rows that then failed
+
+        void fail(long row, String message) {
+            failed++;
+            if (errors.size() < maxErrors) errors.add(new ImportError(row, message));
+        }
+
+        void fail(PendingRow row, String message) {
+            fail(row.number(), message);
+            if (row.image() != null) orphans.add(row.image().key());
+        }
+
+        ImportReport report() {
+            return new ImportReport(rows, inserted, updated, failed, errors, failed > errors.size());
+        }
+    }
+}
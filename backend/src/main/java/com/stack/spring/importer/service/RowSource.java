@@ -0,0 +1,128 @@
+package com.stack.spring.importer.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stack.spring.importer.dto.ImportRow;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads an import file one row at a time. A row that can't be parsed is returned
+ * with an error rather than ending the import; only unreadable input throws.
+ */
+interface RowSource {
+
+    /** A parsed row, or (with {@code error} set) a row to report and skip. */
+    record SourceRow(long number, ImportRow row, String error) {}
+
+    /** The next row, or null at end of input. */
+    SourceRow next() throws IOException;
+
+    static RowSource open(ImportFormat format, InputStream in, ObjectMapper objectMapper) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') reader.reset(); // byte order mark
+        return switch (format) {
+            case CSV -> new Csv(reader);
+            case NDJSON -> new Ndjson(reader, objectMapper);
+        };
+    }
+
+    /** Header line first; columns are matched by name, unknown ones are ignored, empty cells are null. */
+    final class Csv implements RowSource {
+
+        private static final Map<String, BiConsumer<ImportRow, String>> COLUMNS = Map.of(
+                "id", (r, s) -> r.setId(Integer.valueOf(s)),
+                "name", ImportRow::setName,
+                "description", ImportRow::setDescription,
+                "brand", ImportRow::setBrand,
+                "category", ImportRow::setCategory,
+                "price", (r, s) -> r.setPrice(new BigDecimal(s)),
+                "releasedate", (r, s) -> r.setReleaseDate(LocalDate.parse(s)),
+                "productavailable", (r, s) -> r.setProductAvailable(parseBoolean(s)),
+                "stockquantity", (r, s) -> r.setStockQuantity(Integer.valueOf(s)),
+                "image", ImportRow::setImage);
+
+        private final CsvReader csv;
+        private final List<String> headers = new ArrayList<>();
+        private final List<BiConsumer<ImportRow, String>> setters = new ArrayList<>(); // null = ignored column
+        private long number;
+
+        Csv(BufferedReader reader) throws IOException {
+            this.csv = new CsvReader(reader);
+            List<String> header = csv.next();
+            if (header == null) throw new IOException("Empty file");
+            for (String h : header) {
+                headers.add(h.trim());
+                setters.add(COLUMNS.get(h.trim().replace("_", "").replace(" ", "").toLowerCase(Locale.ROOT)));
+            }
+            if (setters.stream().allMatch(s -> s == null)) {
+                throw new IOException("No known columns in header: " + String.join(",", header));
+            }
+        }
+
+        @Override
+        public SourceRow next() throws IOException {
+            List<String> record = csv.next();
+            if (record == null) return null;
+            number++;
+            ImportRow row = new ImportRow();
+            for (int i = 0; i < record.size() && i < setters.size(); i++) {
+                String value = record.get(i).trim();
+                if (setters.get(i) == null || value.isEmpty()) continue;
+                try {
+                    setters.get(i).accept(row, value);
+                } catch (RuntimeException e) { // NumberFormatException, DateTimeParseException, ...
+                    return new SourceRow(number, null, headers.get(i) + ": invalid value '" + value + "'");
+                }
+            }
+            return new SourceRow(number, row, null);
+        }
+
+        private static boolean parseBoolean(String s) {
+            return switch (s.toLowerCase(Locale.ROOT)) {
+                case "true", "1", "yes" -> true;
+                case "false", "0", "no" -> false;
+                default -> throw new IllegalArgumentException(s);
+            };
+        }
+    }
+
+    /** One JSON object per line; blank lines are skipped, row numbers are line numbers. */
+    final class Ndjson implements RowSource {
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+        private long line;
+
+        Ndjson(BufferedReader reader, ObjectMapper objectMapper) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public SourceRow next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                if (text == null) return null;
+                line++;
+            } while (text.isBlank());
+            try {
+                return new SourceRow(line, objectMapper.readValue(text, ImportRow.class), null);
+            } catch (JsonProcessingException e) {
+                return new SourceRow(line, null, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+}
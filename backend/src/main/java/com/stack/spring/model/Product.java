@@ -13,13 +13,27 @@ import java.time.LocalDate;
 import java.util.Date;
 
 @Entity
+@Table(indexes = {
+        // keyset listing: each sort key paired with id as the tie-breaker
+        @Index(name = "idx_product_price_id", columnList = "price, id"),
+        @Index(name = "idx_product_release_date_id", columnList = "releaseDate, id"),
+        @Index(name = "idx_product_name_id", columnList = "name, id"),
+        @Index(name = "idx_product_category", columnList = "category"),
+        @Index(name = "idx_product_brand", columnList = "brand")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
 
+    // Pooled sequence: one nextval hands out a block of ids, and unlike IDENTITY
+    // Hibernate knows the id before the INSERT, so inserts can be batched.
+    public static final String ID_SEQUENCE = "product_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private int id;
     private String name;
     private String description;
@@ -31,9 +45,16 @@ public class Product {
     private int stockQuantity;
     private String imageName;
     private String imageType;
-    @Lob
     @JsonIgnore
-    private byte[] imageData;
+    private String imageKey;
+    // Units held by unpaid orders; only changed by ProductStockUpdates, never by entity saves
+    @JsonIgnore
+    @Column(insertable = false, updatable = false, columnDefinition = "integer not null default 0")
+    private int reservedQuantity;
+    // Units dealt out to hot-SKU stripes (see HotStockService); still part of stockQuantity
+    @JsonIgnore
+    @Column(insertable = false, updatable = false, columnDefinition = "integer not null default 0")
+    private int stripedQuantity;
 
     public Product(int id) {
         this.id = id;
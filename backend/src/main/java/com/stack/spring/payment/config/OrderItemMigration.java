@@ -0,0 +1,108 @@
+package com.stack.spring.payment.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stack.spring.dto.ProductDetail;
+import com.stack.spring.payment.dto.CheckoutItem;
+import com.stack.spring.payment.model.OrderItem;
+import com.stack.spring.payment.repo.OrderItemRepository;
+import com.stack.spring.repo.ProductRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One-time move of {@code order_payment.checkout_items_json} into {@code order_item} rows,
+ * {@value #PAGE} orders per transaction; each order's JSON is cleared as its lines are
+ * written, so a restart picks up where it stopped. The JSON never recorded prices, so
+ * migrated lines take the product's current price (none if the product is gone).
+ * The column is dropped once every row has been moved; rows whose JSON cannot be read
+ * are logged and left in place.
+ */
+@Configuration
+public class OrderItemMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderItemMigration.class);
+
+    static final int PAGE = 500;
+
+    private record Legacy(long orderPaymentId, Map<Integer, Integer> qtyByProductId) {}
+
+    // Runs once every singleton exists, but before the web server starts and before the
+    // startup runners: until it's done, fulfilment would find no lines for a legacy order
+    @Bean
+    SmartInitializingSingleton migrateCheckoutItemsJson(JdbcTemplate jdbc, OrderItemRepository itemRepo,
+                                               ProductRepo productRepo, ObjectMapper objectMapper,
+                                               PlatformTransactionManager txManager) {
+        return () -> {
+            if (jdbc.queryForList("SELECT column_name FROM information_schema.columns " +
+                    "WHERE table_name = 'order_payment' AND column_name = 'checkout_items_json'").isEmpty()) {
+                return;
+            }
+
+            TransactionTemplate tx = new TransactionTemplate(txManager);
+            long after = 0;
+            int moved = 0, unreadable = 0;
+            while (true) {
+                Map<Long, String> page = new LinkedHashMap<>();
+                jdbc.query("SELECT id, checkout_items_json FROM order_payment " +
+                                "WHERE checkout_items_json IS NOT NULL AND id > ? ORDER BY id LIMIT " + PAGE,
+                        rs -> { page.put(rs.getLong(1), rs.getString(2)); }, after);
+                if (page.isEmpty()) break;
+                after = page.keySet().stream().mapToLong(Long::longValue).max().getAsLong();
+
+                List<Legacy> orders = new ArrayList<>(page.size());
+                Set<Integer> productIds = new HashSet<>();
+                for (Map.Entry<Long, String> e : page.entrySet()) {
+                    Map<Integer, Integer> qty = new HashMap<>();
+                    try {
+                        for (CheckoutItem it : objectMapper.readValue(e.getValue(), new TypeReference<List<CheckoutItem>>() {})) {
+                            qty.merge(it.getProductId(), it.getQuantity(), Integer::sum);
+                        }
+                    } catch (Exception ex) {
+                        log.warn("Order payment {} has unreadable checkout_items_json, left as is", e.getKey());
+                        unreadable++;
+                        continue;
+                    }
+                    orders.add(new Legacy(e.getKey(), qty));
+                    productIds.addAll(qty.keySet());
+                }
+
+                Map<Integer, ProductDetail> products = new HashMap<>();
+                productRepo.findDetailsByIdIn(productIds).forEach(p -> products.put(p.id(), p));
+
+                List<OrderItem> items = new ArrayList<>();
+                for (Legacy o : orders) {
+                    o.qtyByProductId().forEach((id, qty) -> {
+                        ProductDetail p = products.get(id);
+                        items.add(new OrderItem(o.orderPaymentId(), id, qty, p != null ? p.price() : null));
+                    });
+                }
+                tx.executeWithoutResult(s -> {
+                    itemRepo.saveAll(items);
+                    jdbc.batchUpdate("UPDATE order_payment SET checkout_items_json = NULL WHERE id = ?",
+                            orders.stream().map(o -> new Object[]{o.orderPaymentId()}).toList());
+                });
+                moved += orders.size();
+            }
+
+            if (unreadable == 0) {
+                jdbc.execute("ALTER TABLE order_payment DROP COLUMN checkout_items_json");
+            }
+            log.info("Moved checkout items of {} orders into order_item", moved);
+        };
+    }
+}
@@ -1,12 +1,9 @@
 package com.stack.spring.payment.controller;
 
-import com.stack.spring.payment.service.CheckoutService;
-import com.stack.spring.payment.repo.OrderPaymentRepository;
+import com.stack.spring.payment.service.CheckoutBatcher;
 import com.stack.spring.payment.dto.CheckoutRequest;
-import com.stack.spring.repo.ProductRepo;
 
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.Principal;
@@ -15,20 +12,15 @@ import java.security.Principal;
 @RequestMapping("/api/payments")
 public class CheckoutController {
 
-    private final ProductRepo ProductRepo;
-    private final OrderPaymentRepository orderPaymentRepository;
-    private final CheckoutService checkoutService;
+    private final CheckoutBatcher checkoutBatcher;
 
-    public CheckoutController(ProductRepo ProductRepo,
-                              OrderPaymentRepository orderPaymentRepository, CheckoutService checkoutService) {
-        this.ProductRepo = ProductRepo;
-        this.orderPaymentRepository = orderPaymentRepository;
-        this.checkoutService = checkoutService;
+    public CheckoutController(CheckoutBatcher checkoutBatcher) {
+        this.checkoutBatcher = checkoutBatcher;
     }
 
+    // no transaction here: the request waits for its batch, which commits on another thread
     @PostMapping("/checkout")
-    @Transactional
     public ResponseEntity<?> checkout(@RequestBody CheckoutRequest req, Principal principal) {
-        return ResponseEntity.ok(checkoutService.checkout(req, principal));
+        return ResponseEntity.ok(checkoutBatcher.checkout(req, principal));
     }
 }
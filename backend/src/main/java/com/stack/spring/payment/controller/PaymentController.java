@@ -2,6 +2,7 @@ package com.stack.spring.payment.controller;
 
 import com.stack.spring.payment.model.OrderPayment;
 import com.stack.spring.payment.dto.CheckoutRequest;
+import com.stack.spring.payment.dto.ProductSales;
 import com.stack.spring.payment.service.CheckoutPaymentService;
 import com.stack.spring.payment.service.PaymentService;
 import org.springframework.http.ResponseEntity;
@@ -64,4 +65,17 @@ public class PaymentController {
     public List<OrderPayment> myOrders(Authentication auth) {
         return paymentService.myOrders(auth.getName());
     }
+
+    // Per-product sales over PAID orders, best sellers first
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/sales")
+    public List<ProductSales> sales() {
+        return paymentService.salesByProduct();
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/sales/{productId}")
+    public ProductSales salesOf(@PathVariable int productId) {
+        return paymentService.salesOf(productId);
+    }
 }
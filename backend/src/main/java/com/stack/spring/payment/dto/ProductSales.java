@@ -0,0 +1,23 @@
+package com.stack.spring.payment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Units sold and revenue of one product over its PAID orders. Lines migrated from the
+ * old JSON column have no price if the product was already gone; they count in
+ * {@code unitsSold} but not in {@code revenue}, and are counted in {@code unpricedUnits}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSales {
+    private int productId;
+    private long orders;
+    private long unitsSold;
+    private BigDecimal revenue; // null if no line has a price
+    private long unpricedUnits;
+}
@@ -0,0 +1,41 @@
+package com.stack.spring.payment.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * One product line of an {@link OrderPayment}, with the price it was sold at.
+ * Quantities of the same product are merged into one line.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_order_item_order_payment_id", columnList = "orderPaymentId"),
+        @Index(name = "idx_order_item_product_id", columnList = "productId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_item_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long orderPaymentId;
+
+    private int productId;
+    private int quantity;
+
+    // null only on lines migrated from orders that predate this table (see OrderItemMigration)
+    private BigDecimal unitPrice;
+
+    public OrderItem(Long orderPaymentId, int productId, int quantity, BigDecimal unitPrice) {
+        this(null, orderPaymentId, productId, quantity, unitPrice);
+    }
+}
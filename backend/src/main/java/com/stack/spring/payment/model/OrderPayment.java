@@ -1,5 +1,6 @@
 package com.stack.spring.payment.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -7,6 +8,7 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.List;
 
 @Entity
 @Data
@@ -14,7 +16,9 @@ import java.time.Instant;
 @AllArgsConstructor
 public class OrderPayment {
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_payment_seq")
+    @SequenceGenerator(name = "order_payment_seq", sequenceName = "order_payment_seq", allocationSize = 50)
     private Long id;
 
     private String username;
@@ -24,9 +28,10 @@ public class OrderPayment {
 
     private boolean fulfilled;
 
-    @Column(columnDefinition = "TEXT")
-    private String checkoutItemsJson;
-
+    // order history only: filled in by PaymentService from order_item, never stored here
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<OrderItem> items;
 
     private BigDecimal amount;
     private String currency = "INR";
@@ -0,0 +1,46 @@
+package com.stack.spring.payment.repo;
+
+import com.stack.spring.payment.dto.ProductSales;
+import com.stack.spring.payment.model.OrderItem;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+    List<OrderItem> findByOrderPaymentId(Long orderPaymentId);
+    List<OrderItem> findByOrderPaymentIdIn(Collection<Long> orderPaymentIds);
+
+    // SUM skips lines without a price (see ProductSales), so those are counted separately
+    @Query("SELECT new com.stack.spring.payment.dto.ProductSales(i.productId, COUNT(DISTINCT i.orderPaymentId), " +
+            "SUM(i.quantity), SUM(i.unitPrice * i.quantity), " +
+            "SUM(CASE WHEN i.unitPrice IS NULL THEN i.quantity ELSE 0 END)) " +
+            "FROM OrderItem i JOIN OrderPayment o ON o.id = i.orderPaymentId " +
+            "WHERE o.status = com.stack.spring.payment.model.OrderPayment.Status.PAID " +
+            "GROUP BY i.productId ORDER BY SUM(i.quantity) DESC")
+    List<ProductSales> salesByProduct();
+
+    // reads only this product's lines, via idx_order_item_product_id
+    @Query("SELECT new com.stack.spring.payment.dto.ProductSales(i.productId, COUNT(DISTINCT i.orderPaymentId), " +
+            "SUM(i.quantity), SUM(i.unitPrice * i.quantity), " +
+            "SUM(CASE WHEN i.unitPrice IS NULL THEN i.quantity ELSE 0 END)) " +
+            "FROM OrderItem i JOIN OrderPayment o ON o.id = i.orderPaymentId " +
+            "WHERE i.productId = :productId AND o.status = com.stack.spring.payment.model.OrderPayment.Status.PAID " +
+            "GROUP BY i.productId")
+    Optional<ProductSales> salesOf(@Param("productId") int productId);
+
+    // Cursor over all lines for exports; the caller holds the transaction and closes the stream
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT i FROM OrderItem i ORDER BY i.orderPaymentId, i.id")
+    Stream<OrderItem> streamAll();
+}
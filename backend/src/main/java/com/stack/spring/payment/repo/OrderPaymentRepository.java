@@ -1,10 +1,23 @@
 package com.stack.spring.payment.repo;
 
 import com.stack.spring.payment.model.OrderPayment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface OrderPaymentRepository extends JpaRepository<OrderPayment, Long> {
     List<OrderPayment> findByUsernameOrderByCreatedAtDesc(String username);
     OrderPayment findByOrderId(String orderId);
+
+    // Cursor over all orders for exports; the caller holds the transaction and closes the stream
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") // no dirty-checking copies
+    })
+    @Query("SELECT o FROM OrderPayment o ORDER BY o.id")
+    Stream<OrderPayment> streamAll();
 }
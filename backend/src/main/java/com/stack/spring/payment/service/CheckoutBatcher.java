@@ -0,0 +1,166 @@
+package com.stack.spring.payment.service;
+
+import com.stack.spring.hotstock.service.HotStockService;
+import com.stack.spring.payment.dto.CheckoutItem;
+import com.stack.spring.payment.dto.CheckoutRequest;
+import com.stack.spring.payment.service.CheckoutService.Outcome;
+import com.stack.spring.payment.service.CheckoutService.Submission;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit for {@code POST /api/payments/checkout}: requests are queued and a single
+ * worker hands them to {@link CheckoutService#checkoutAll} together, once
+ * {@code app.checkout.batch.max-size} are waiting or {@code app.checkout.batch.window}
+ * after the first, so a peak costs one transaction per batch rather than per request.
+ * <p>
+ * If a whole batch fails, its requests are retried one by one, so one bad request can
+ * only fail itself. Orders with a hot-SKU product skip the batch; striped stock is not
+ * on the product row the batch locks.
+ */
+@Service
+public class CheckoutBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckoutBatcher.class);
+
+    private record Pending(Submission submission, CompletableFuture<Map<String, Object>> result) {}
+
+    private final CheckoutService checkoutService;
+    private final HotStockService hotStock;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxSize;
+    private final Duration timeout;
+    private final BlockingQueue<Pending> queue;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "checkout-batcher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CheckoutBatcher(CheckoutService checkoutService, HotStockService hotStock,
+                           @Value("${app.checkout.batch.enabled:true}") boolean enabled,
+                           @Value("${app.checkout.batch.window:2ms}") Duration window,
+                           @Value("${app.checkout.batch.max-size:64}") int maxSize,
+                           @Value("${app.checkout.batch.queue-size:10000}") int queueSize,
+                           @Value("${app.checkout.batch.timeout:10s}") Duration timeout) {
+        this.checkoutService = checkoutService;
+        this.hotStock = hotStock;
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.maxSize = maxSize;
+        this.timeout = timeout;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        if (enabled) worker.execute(this::run);
+    }
+
+    /**
+     * Same contract as {@link CheckoutService#checkout}; blocks until the request's batch commits.
+     * A request still queued after {@code app.checkout.batch.timeout} is withdrawn and answered
+     * 503, which is safe to retry; one already taken into a batch waits for that batch's outcome.
+     */
+    public Map<String, Object> checkout(CheckoutRequest req, Principal principal) {
+        if (!enabled || touchesHotStock(req)) {
+            return checkoutService.checkout(req, principal);
+        }
+        Pending pending = new Pending(new Submission(req, principal), new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many checkouts, try again");
+        }
+        try {
+            try {
+                return pending.result().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (queue.remove(pending)) {
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Checkout timed out, try again");
+                }
+                // the worker has it, so it may commit: answering now could make a retry pay twice
+                return pending.result().get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Checkout interrupted");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private boolean touchesHotStock(CheckoutRequest req) {
+        if (req == null || req.getItems() == null) return false;
+        for (CheckoutItem it : req.getItems()) {
+            if (hotStock.isHot(it.getProductId())) return true;
+        }
+        return false;
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxSize);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxSize) {
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                process(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            batch.addAll(queue);
+            batch.forEach(p -> p.result().completeExceptionally(
+                    new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Shutting down")));
+        }
+    }
+
+    private void process(List<Pending> batch) {
+        List<Outcome> outcomes;
+        try {
+            outcomes = checkoutService.checkoutAll(batch.stream().map(Pending::submission).toList());
+        } catch (RuntimeException e) {
+            log.warn("Group checkout of {} failed, retrying one by one", batch.size(), e);
+            batch.forEach(this::processAlone);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Outcome o = outcomes.get(i);
+            if (o.error() != null) batch.get(i).result().completeExceptionally(o.error());
+            else batch.get(i).result().complete(o.body());
+        }
+    }
+
+    private void processAlone(Pending p) {
+        try {
+            p.result().complete(checkoutService.checkout(p.submission().req(), p.submission().principal()));
+        } catch (RuntimeException e) {
+            p.result().completeExceptionally(e);
+        }
+    }
+}
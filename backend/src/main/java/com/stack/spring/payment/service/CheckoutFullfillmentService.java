@@ -1,35 +1,55 @@
 package com.stack.spring.payment.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stack.spring.event.ProductChangedEvent;
+import com.stack.spring.hotstock.service.HotStockService;
 import com.stack.spring.model.Product;
+import com.stack.spring.payment.model.OrderItem;
 import com.stack.spring.payment.model.OrderPayment;
+import com.stack.spring.payment.repo.OrderItemRepository;
 import com.stack.spring.payment.repo.OrderPaymentRepository;
-import com.stack.spring.payment.dto.CheckoutItem;
 import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.reservation.service.StockHoldService;
+import com.stack.spring.service.ProductCache;
 import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 public class CheckoutFullfillmentService {
 
     private final OrderPaymentRepository orderPaymentRepository;
+    private final OrderItemRepository orderItemRepository;
     private final ProductRepo productRepo;
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
-    public CheckoutFullfillmentService(OrderPaymentRepository orderPaymentRepository, ProductRepo productRepo) {
+    private final ProductCache productCache;
+    private final ApplicationEventPublisher events;
+    private final StockHoldService stockHolds;
+    private final HotStockService hotStock;
+
+    public CheckoutFullfillmentService(OrderPaymentRepository orderPaymentRepository,
+                                       OrderItemRepository orderItemRepository, ProductRepo productRepo,
+                                       ProductCache productCache, ApplicationEventPublisher events,
+                                       StockHoldService stockHolds, HotStockService hotStock) {
         this.orderPaymentRepository = orderPaymentRepository;
+        this.orderItemRepository = orderItemRepository;
         this.productRepo = productRepo;
+        this.productCache = productCache;
+        this.events = events;
+        this.stockHolds = stockHolds;
+        this.hotStock = hotStock;
     }
 
     /**
-     * Fulfill = decrement stock exactly once after payment is PAID.
+     * Fulfill = decrement stock exactly once after payment is PAID, using up the
+     * order's stock holds from create-order.
      * Idempotent: if already fulfilled, it does nothing (safe on retries).
      */
     @Transactional
@@ -59,71 +79,50 @@ public class CheckoutFullfillmentService {
             return; // safe retry
         }
 
-        String itemsJson = op.getCheckoutItemsJson();
-        if (itemsJson == null || itemsJson.isBlank()) {
+        List<OrderItem> items = orderItemRepository.findByOrderPaymentId(op.getId());
+        if (items.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No checkout items attached to this payment");
         }
 
-        // Parse items from JSON
-        List<CheckoutItem> items;
-        try {
-            items = objectMapper.readValue(itemsJson, new TypeReference<List<CheckoutItem>>() {});
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Invalid checkout items JSON");
-        }
-
-        if (items == null || items.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No items to fulfill");
-        }
-
-        // Aggregate quantities by productId (handles duplicates safely)
+        // Lines are validated and merged per product when the order is created
         Map<Integer, Integer> qtyByProductId = new HashMap<>();
-        for (CheckoutItem it : items) {
-            if (it.getProductId() == 0) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid productId in items");
-            }
-            if (it.getQuantity() <= 0) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid quantity for product: " + it.getProductId());
-            }
+        for (OrderItem it : items) {
             qtyByProductId.merge(it.getProductId(), it.getQuantity(), Integer::sum);
         }
 
-        // Batch fetch products
-        List<Integer> productIds = qtyByProductId.keySet().stream().toList();
-        Map<Integer, Product> productMap = new HashMap<>();
-        for (Product p : productRepo.findAllById(productIds)) {
-            productMap.put(p.getId(), p);
-        }
-
-        // Validate stock
+        // Held units become the sale; whatever is no longer held (the hold expired and was
+        // swept) comes from available stock. Any shortfall rolls back the whole order.
+        Map<Integer, Integer> held = stockHolds.take(orderId);
+        Map<Integer, Integer> fromHold = new HashMap<>();
+        Map<Integer, Integer> fromStock = new HashMap<>();
         for (Map.Entry<Integer, Integer> entry : qtyByProductId.entrySet()) {
-            Integer productId = entry.getKey();
-            int qtyNeeded = entry.getValue();
-
-            Product p = productMap.get(productId);
-            if (p == null) {
-                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found: " + productId);
-            }
-            if (p.getStockQuantity() < qtyNeeded) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient stock for product: " + p.getName());
-            }
+            int qtyHeld = held.getOrDefault(entry.getKey(), 0);
+            if (qtyHeld > 0) fromHold.put(entry.getKey(), Math.min(qtyHeld, entry.getValue()));
+            if (entry.getValue() > qtyHeld) fromStock.put(entry.getKey(), entry.getValue() - qtyHeld);
         }
-
-        // Decrement stock
-        for (Map.Entry<Integer, Integer> entry : qtyByProductId.entrySet()) {
-            Integer productId = entry.getKey();
-            int qtyNeeded = entry.getValue();
-
-            Product p = productMap.get(productId);
-            int newStock = p.getStockQuantity() - qtyNeeded;
-            p.setStockQuantity(Math.max(newStock, 0));
-
-            if (p.getStockQuantity() == 0) {
-                p.setProductAvailable(false);
-            }
+        Map<Integer, Integer> surplus = new HashMap<>();
+        held.forEach((productId, qtyHeld) -> {
+            int extra = qtyHeld - qtyByProductId.getOrDefault(productId, 0);
+            if (extra > 0) surplus.put(productId, extra);
+        });
+
+        // Every row this writes is locked in one id-ordered pass (after any hot product's
+        // stripes) before the first update, so fulfills sharing products cannot deadlock
+        Set<Integer> rows = new HashSet<>(fromHold.keySet());
+        rows.addAll(surplus.keySet());
+        List<Integer> shortIds = new ArrayList<>(hotStock.decrementStock(fromStock, rows));
+        shortIds.addAll(productRepo.consumeReserved(fromHold));
+        productRepo.releaseReserved(surplus);
+        List<Product> updated = productRepo.findAllById(qtyByProductId.keySet());
+        if (!shortIds.isEmpty()) {
+            Integer productId = shortIds.get(0);
+            Product p = updated.stream().filter(u -> u.getId() == productId).findFirst()
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found: " + productId));
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient stock for product: " + p.getName());
         }
 
-        productRepo.saveAll(productMap.values());
+        productCache.evict(qtyByProductId.keySet());
+        events.publishEvent(ProductChangedEvent.saved(updated));
 
         // Mark fulfilled (idempotency flag)
         op.setFulfilled(true);
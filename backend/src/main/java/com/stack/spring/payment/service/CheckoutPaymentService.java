@@ -1,33 +1,43 @@
 package com.stack.spring.payment.service;
 
-import com.stack.spring.model.Product;
+import com.stack.spring.dto.ProductDetail;
 import com.stack.spring.payment.dto.CheckoutItem;
 import com.stack.spring.payment.dto.CheckoutRequest;
-import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.payment.model.OrderItem;
+import com.stack.spring.reservation.service.StockHoldService;
+import com.stack.spring.service.ProductLoader;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class CheckoutPaymentService {
 
-    private final ProductRepo productRepo;
+    private final ProductLoader productLoader;
     private final PaymentService paymentService;
+    private final StockHoldService stockHolds;
+    private final CheckoutFullfillmentService fulfillmentService;
 
-    public CheckoutPaymentService(ProductRepo productRepo, PaymentService paymentService) {
-        this.productRepo = productRepo;
+    public CheckoutPaymentService(ProductLoader productLoader, PaymentService paymentService,
+                                  StockHoldService stockHolds, CheckoutFullfillmentService fulfillmentService) {
+        this.productLoader = productLoader;
         this.paymentService = paymentService;
+        this.stockHolds = stockHolds;
+        this.fulfillmentService = fulfillmentService;
     }
 
     /**
      * STEP 5 CORE:
      * Client sends items only.
-     * Server fetches product prices from DB, validates stock, computes amount.
+     * Server fetches product prices from DB, computes amount and holds the stock
+     * (see StockHoldService) until the payment is verified or the hold expires.
      * Then calls PaymentService.createOrder(computedAmount, username).
      */
     public Map<String, Object> createOrderFromCheckout(CheckoutRequest req, String username) {
@@ -44,17 +54,15 @@ public class CheckoutPaymentService {
                 .distinct()
                 .toList();
 
-        // 2) Fetch products from DB in one shot
-        Map<Integer, Product> productMap = new HashMap<>();
-        for (Product p : productRepo.findAllById(productIds)) {
-            productMap.put(p.getId(), p);
-        }
+        // 2) Fetch products in one shot, shared with concurrent lookups (see ProductLoader)
+        Map<Integer, ProductDetail> productMap = productLoader.loadAll(productIds);
 
         // 3) Validate + compute amount from DB prices (NOT from client)
         BigDecimal computedAmount = BigDecimal.ZERO;
+        Map<Integer, Integer> qtyByProductId = new HashMap<>();
 
         for (CheckoutItem it : req.getItems()) {
-            Product p = productMap.get(it.getProductId());
+            ProductDetail p = productMap.get(it.getProductId());
 
             if (p == null) {
                 throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found: " + it.getProductId());
@@ -62,24 +70,52 @@ public class CheckoutPaymentService {
             if (it.getQuantity() <= 0) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid quantity for product: " + it.getProductId());
             }
-            if (p.getStockQuantity() < it.getQuantity()) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient stock for product: " + p.getName());
-            }
-            if (p.getPrice() == null || p.getPrice().compareTo(BigDecimal.ZERO) <= 0) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid product price for: " + p.getName());
+            if (p.price() == null || p.price().compareTo(BigDecimal.ZERO) <= 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid product price for: " + p.name());
             }
 
+            qtyByProductId.merge(it.getProductId(), it.getQuantity(), Integer::sum);
             computedAmount = computedAmount.add(
-                    p.getPrice().multiply(BigDecimal.valueOf(it.getQuantity()))
+                    p.price().multiply(BigDecimal.valueOf(it.getQuantity()))
             );
         }
 
-        // 4) Create Razorpay/mock order using computedAmount
-        Map<String, Object> paymentResp = paymentService.createOrder(computedAmount, username);
+        // 4) Hold the stock first, so no payment order is created for items that are gone
+        String holdRef = "hold_" + UUID.randomUUID();
+        List<Integer> shortIds = stockHolds.hold(holdRef, qtyByProductId);
+        if (!shortIds.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Insufficient stock for product: " + productMap.get(shortIds.get(0)).name());
+        }
+
+        // 5) Create Razorpay/mock order using computedAmount; the holds then belong to that order
+        Map<String, Object> paymentResp;
+        String orderId;
+        try {
+            paymentResp = paymentService.createOrder(computedAmount, username);
+            orderId = (String) paymentResp.get("orderId");
+            paymentService.attachCheckoutItems(orderId, orderItems(qtyByProductId, productMap), username);
+            stockHolds.rename(holdRef, orderId); // last, so a failure above still finds them under holdRef
+        } catch (RuntimeException e) {
+            stockHolds.release(holdRef);
+            throw e;
+        }
 
-        // 5) Return both: computedAmount + payment info (helps frontend)
+        // Mock payments are PAID on creation, so there is no verify step to fulfill them
+        if ("PAID".equals(paymentResp.get("status"))) {
+            fulfillmentService.fulfill(orderId, username);
+        }
+
+        // 6) Return both: computedAmount + payment info (helps frontend)
         Map<String, Object> resp = new HashMap<>(paymentResp);
         resp.put("computedAmount", computedAmount);
         return resp;
     }
+
+    // one line per product, at the price the amount was computed from
+    private static List<OrderItem> orderItems(Map<Integer, Integer> qtyByProductId, Map<Integer, ProductDetail> productMap) {
+        List<OrderItem> items = new ArrayList<>(qtyByProductId.size());
+        qtyByProductId.forEach((id, qty) -> items.add(new OrderItem(null, id, qty, productMap.get(id).price())));
+        return items;
+    }
 }
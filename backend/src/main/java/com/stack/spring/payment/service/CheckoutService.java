@@ -1,59 +1,185 @@
 package com.stack.spring.payment.service;
 
+import com.stack.spring.dto.ProductDetail;
+import com.stack.spring.event.ProductChangedEvent;
+import com.stack.spring.hotstock.service.HotStockService;
 import com.stack.spring.model.Product;
+import com.stack.spring.payment.model.OrderItem;
 import com.stack.spring.payment.model.OrderPayment;
+import com.stack.spring.payment.repo.OrderItemRepository;
 import com.stack.spring.payment.repo.OrderPaymentRepository;
 import com.stack.spring.payment.dto.CheckoutItem;
 import com.stack.spring.payment.dto.CheckoutRequest;
 import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.service.ProductCache;
+import com.stack.spring.service.ProductLoader;
 import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.security.Principal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 public class CheckoutService {
 
+    /** A queued checkout (see CheckoutBatcher). */
+    public record Submission(CheckoutRequest req, Principal principal) {}
+
+    /** What became of a {@link Submission}: the response body, or the error to answer with. */
+    public record Outcome(Map<String, Object> body, ResponseStatusException error) {}
+
+    // validated items of one request
+    private record Priced(BigDecimal amount, Map<Integer, Integer> qtyByProductId) {}
+
     private final ProductRepo productRepo;
     private final OrderPaymentRepository orderPaymentRepository;
-
-    public CheckoutService(ProductRepo productRepo, OrderPaymentRepository orderPaymentRepository) {
+    private final OrderItemRepository orderItemRepository;
+    private final ProductCache productCache;
+    private final ApplicationEventPublisher events;
+    private final HotStockService hotStock;
+    private final ProductLoader productLoader;
+    private final TransactionTemplate tx;
+
+    public CheckoutService(ProductRepo productRepo, OrderPaymentRepository orderPaymentRepository,
+                           OrderItemRepository orderItemRepository, ProductCache productCache,
+                           ApplicationEventPublisher events, HotStockService hotStock,
+                           ProductLoader productLoader, PlatformTransactionManager txManager) {
         this.productRepo = productRepo;
         this.orderPaymentRepository = orderPaymentRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.productCache = productCache;
+        this.events = events;
+        this.hotStock = hotStock;
+        this.productLoader = productLoader;
+        this.tx = new TransactionTemplate(txManager);
     }
 
-    @Transactional
     public Map<String, Object> checkout(CheckoutRequest req, Principal principal) {
 
         // 1) Basic request validation
         if (req == null || req.getItems() == null || req.getItems().isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No items");
         }
-        BigDecimal computedAmount = BigDecimal.ZERO;
 
-        List<Integer> productIds = req.getItems()
-                .stream()
-                .map(CheckoutItem::getProductId)
-                .distinct()
-                .toList();
+        // Prices and names only, read before the transaction opens (see ProductLoader);
+        // stock is checked by the decrement itself
+        Map<Integer, ProductDetail> productMap = productLoader.loadAll(productIds(List.of(req)));
 
-        Map<Integer, Product> productMap = new HashMap<>();
-        for (Product p : productRepo.findAllById(productIds)) {
-            productMap.put(p.getId(), p);
+        // 2) Validate items and price the order
+        Priced priced = price(req, productMap);
+
+        return tx.execute(s -> {
+            // 3) Record mock payment row (replace with real gateway verify later)
+            OrderPayment op = mockOrder(principal, priced.amount(), "MOCK-" + System.currentTimeMillis());
+            orderPaymentRepository.save(op);
+            orderItemRepository.saveAll(orderItems(op, priced, productMap));
+
+            // 4) Decrement stock atomically; any shortfall rolls back the whole order
+            List<Integer> shortIds = hotStock.decrementStock(priced.qtyByProductId());
+            if (!shortIds.isEmpty()) {
+                throw insufficientStock(productMap.get(shortIds.get(0)));
+            }
+
+            stockChanged(priced.qtyByProductId().keySet());
+
+            // 5) Success payload
+            return body(op);
+        });
+    }
+
+    /**
+     * Group commit: many checkouts in one transaction, with one product read, one locked
+     * read of the stock, one batch each of order and order line inserts and one batch
+     * of stock updates.
+     * Each submission still succeeds or fails on its own; stock goes to them in order.
+     * Products in hot-SKU mode are not handled here, since their stock is not on the row.
+     * <p>
+     * Throws only if the batch as a whole failed, in which case nothing was written.
+     */
+    @Transactional
+    public List<Outcome> checkoutAll(List<Submission> submissions) {
+        List<CheckoutRequest> reqs = submissions.stream().map(Submission::req).toList();
+        Set<Integer> ids = productIds(reqs);
+
+        Map<Integer, ProductDetail> productMap = new HashMap<>();
+        for (ProductDetail p : productRepo.findDetailsByIdIn(ids)) {
+            productMap.put(p.id(), p);
         }
+        Map<Integer, Integer> available = productRepo.lockAvailable(ids);
+
+        long now = System.currentTimeMillis();
+        List<Outcome> outcomes = new ArrayList<>(submissions.size());
+        List<OrderPayment> orders = new ArrayList<>();
+        List<Priced> pricedOrders = new ArrayList<>();
+        Map<Integer, Integer> sold = new HashMap<>();
+        for (int i = 0; i < submissions.size(); i++) {
+            Submission s = submissions.get(i);
+            try {
+                if (s.req() == null || s.req().getItems() == null || s.req().getItems().isEmpty()) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No items");
+                }
+                Priced priced = price(s.req(), productMap);
+                allocate(priced.qtyByProductId(), available, productMap);
+                priced.qtyByProductId().forEach((id, qty) -> sold.merge(id, qty, Integer::sum));
+
+                OrderPayment op = mockOrder(s.principal(), priced.amount(), "MOCK-" + now + "-" + i);
+                orders.add(op);
+                pricedOrders.add(priced);
+                outcomes.add(new Outcome(null, null)); // body once the order has its id
+            } catch (ResponseStatusException e) {
+                outcomes.add(new Outcome(null, e));
+            }
+        }
+        if (orders.isEmpty()) return outcomes;
 
+        orderPaymentRepository.saveAll(orders);
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            items.addAll(orderItems(orders.get(i), pricedOrders.get(i), productMap));
+        }
+        orderItemRepository.saveAll(items);
+        if (!productRepo.decrementStock(sold).isEmpty()) {
+            // the rows are locked and were checked above, so this means the data moved under us
+            throw new IllegalStateException("Stock changed during group checkout");
+        }
+        stockChanged(sold.keySet());
 
+        int next = 0;
+        for (int i = 0; i < outcomes.size(); i++) {
+            if (outcomes.get(i).error() == null) {
+                outcomes.set(i, new Outcome(body(orders.get(next++)), null));
+            }
+        }
+        return outcomes;
+    }
 
-        // 2) (Optional) verify stock availability before committing
+    private static Set<Integer> productIds(Collection<CheckoutRequest> reqs) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (CheckoutRequest req : reqs) {
+            if (req == null || req.getItems() == null) continue;
+            req.getItems().forEach(it -> ids.add(it.getProductId()));
+        }
+        return ids;
+    }
+
+    private static Priced price(CheckoutRequest req, Map<Integer, ProductDetail> productMap) {
+        BigDecimal computedAmount = BigDecimal.ZERO;
+        Map<Integer, Integer> qtyByProductId = new HashMap<>();
         for (CheckoutItem it : req.getItems()) {
-            Product p = productMap.get(it.getProductId());
+            ProductDetail p = productMap.get(it.getProductId());
 
             if (p == null) {
                 throw new ResponseStatusException(
@@ -69,50 +195,61 @@ public class CheckoutService {
                 );
             }
 
-            if (p.getStockQuantity() < it.getQuantity()) {
-                throw new ResponseStatusException(
-                        HttpStatus.BAD_REQUEST,
-                        "Insufficient stock for product: " + p.getName()
-                );
-            }
+            qtyByProductId.merge(it.getProductId(), it.getQuantity(), Integer::sum);
             computedAmount = computedAmount.add(
-                    p.getPrice().multiply(BigDecimal.valueOf(it.getQuantity()))
+                    p.price().multiply(BigDecimal.valueOf(it.getQuantity()))
             );
         }
+        return new Priced(computedAmount, qtyByProductId);
+    }
+
+    // Takes the whole order out of the locked stock, or nothing
+    private static void allocate(Map<Integer, Integer> qtyByProductId, Map<Integer, Integer> available,
+                                 Map<Integer, ProductDetail> productMap) {
+        for (Map.Entry<Integer, Integer> e : qtyByProductId.entrySet()) {
+            if (available.getOrDefault(e.getKey(), 0) < e.getValue()) {
+                throw insufficientStock(productMap.get(e.getKey()));
+            }
+        }
+        qtyByProductId.forEach((id, qty) -> available.merge(id, -qty, Integer::sum));
+    }
 
-        // 3) Record mock payment row (replace with real gateway verify later)
+    private static OrderPayment mockOrder(Principal principal, BigDecimal amount, String orderId) {
         OrderPayment op = new OrderPayment();
         op.setUsername(principal != null ? principal.getName() : "guest");
         op.setProvider("mock");
-        op.setOrderId("MOCK-" + System.currentTimeMillis());
+        op.setOrderId(orderId);
         op.setPaymentId("MOCK-PAY-" + System.nanoTime());
         op.setStatus(OrderPayment.Status.PAID);
-        op.setAmount(computedAmount);
+        op.setAmount(amount);
         op.setCreatedAt(Instant.now());
-        orderPaymentRepository.save(op);
-
-        // 4) Decrement stock for each item
-        for (CheckoutItem it : req.getItems()) {
-            Product p = productMap.get(it.getProductId());
+        return op;
+    }
 
-            int newStock = p.getStockQuantity() - it.getQuantity();
-            p.setStockQuantity(Math.max(newStock, 0));
+    // one line per product, at the price the amount was computed from
+    private static List<OrderItem> orderItems(OrderPayment op, Priced priced, Map<Integer, ProductDetail> productMap) {
+        List<OrderItem> items = new ArrayList<>(priced.qtyByProductId().size());
+        priced.qtyByProductId().forEach((id, qty) ->
+                items.add(new OrderItem(op.getId(), id, qty, productMap.get(id).price())));
+        return items;
+    }
 
-            if (p.getStockQuantity() == 0) {
-                p.setProductAvailable(false);
-            }
-        }
+    private void stockChanged(Collection<Integer> productIds) {
+        List<Product> updated = productRepo.findAllById(productIds);
+        productCache.evict(productIds);
+        events.publishEvent(ProductChangedEvent.saved(updated));
+    }
 
-        productRepo.saveAll(productMap.values());
+    private static ResponseStatusException insufficientStock(ProductDetail p) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient stock for product: " + p.name());
+    }
 
-        // 5) Success payload
+    private static Map<String, Object> body(OrderPayment op) {
         Map<String, Object> body = new HashMap<>();
-        body.put("amount", computedAmount);
+        body.put("amount", op.getAmount());
         body.put("status", "PAID");
         body.put("orderId", op.getOrderId());
         body.put("paymentId", op.getPaymentId());
         return body;
-
     }
-
 }
@@ -1,6 +1,9 @@
 package com.stack.spring.payment.service;
 
+import com.stack.spring.payment.dto.ProductSales;
+import com.stack.spring.payment.model.OrderItem;
 import com.stack.spring.payment.model.OrderPayment;
+import com.stack.spring.payment.repo.OrderItemRepository;
 import com.stack.spring.payment.repo.OrderPaymentRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -15,10 +18,13 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class PaymentService {
 
+    private static final int ITEM_CHUNK = 500;
+
     @Value("${payments.provider:mock}")
     private String provider; // razorpay | mock
 
@@ -32,9 +38,13 @@ public class PaymentService {
 
     private final OrderPaymentRepository repo;
 
-    public PaymentService(CheckoutFullfillmentService checkoutFulfillmentService, OrderPaymentRepository repo) {
+    private final OrderItemRepository itemRepo;
+
+    public PaymentService(CheckoutFullfillmentService checkoutFulfillmentService, OrderPaymentRepository repo,
+                          OrderItemRepository itemRepo) {
         this.checkoutFulfillmentService = checkoutFulfillmentService;
         this.repo = repo;
+        this.itemRepo = itemRepo;
     }
 
     public Map<String, Object> createOrder(BigDecimal amountRs, String username) {
@@ -191,25 +201,46 @@ public class PaymentService {
     }
 
 
-    public void attachCheckoutItems(String orderId, String checkoutItemsJson, String username) {
+    /** Stores the order's lines, all in one insert batch. */
+    public void attachCheckoutItems(String orderId, List<OrderItem> items, String username) {
         OrderPayment op = repo.findByOrderId(orderId);
         if (op == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Order not found");
         if (!username.equals(op.getUsername())) throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Forbidden");
 
-        op.setCheckoutItemsJson(checkoutItemsJson);
-        repo.save(op);
+        items.forEach(it -> it.setOrderPaymentId(op.getId()));
+        itemRepo.saveAll(items);
     }
 
 
     public List<OrderPayment> allOrders() {
-        return repo.findAll();
+        return withItems(repo.findAll());
     }
 
     public List<OrderPayment> myOrders(String username) {
         if (username == null || username.isBlank()) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized");
         }
-        return repo.findByUsernameOrderByCreatedAtDesc(username);
+        return withItems(repo.findByUsernameOrderByCreatedAtDesc(username));
+    }
+
+    public List<ProductSales> salesByProduct() {
+        return itemRepo.salesByProduct();
+    }
+
+    public ProductSales salesOf(int productId) {
+        return itemRepo.salesOf(productId).orElse(new ProductSales(productId, 0, 0, BigDecimal.ZERO, 0));
+    }
+
+    // one order_item query per ITEM_CHUNK orders, however many orders there are
+    private List<OrderPayment> withItems(List<OrderPayment> orders) {
+        for (int from = 0; from < orders.size(); from += ITEM_CHUNK) {
+            List<OrderPayment> chunk = orders.subList(from, Math.min(from + ITEM_CHUNK, orders.size()));
+            Map<Long, List<OrderItem>> byOrder = itemRepo
+                    .findByOrderPaymentIdIn(chunk.stream().map(OrderPayment::getId).toList()).stream()
+                    .collect(Collectors.groupingBy(OrderItem::getOrderPaymentId));
+            chunk.forEach(op -> op.setItems(byOrder.getOrDefault(op.getId(), List.of())));
+        }
+        return orders;
     }
 
     private static boolean isBlank(String s) {
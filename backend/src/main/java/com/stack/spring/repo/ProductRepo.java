@@ -1,18 +1,52 @@
 package com.stack.spring.repo;
 
+import com.stack.spring.dto.ProductDetail;
 import com.stack.spring.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepo extends JpaRepository<Product, Integer> {
-    @Query("SELECT p from Product p WHERE " +
-            "LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(p.brand) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(p.category) LIKE LOWER(CONCAT('%', :keyword, '%'))")
-    List<Product> searchProducts(String keyword);
+public interface ProductRepo extends JpaRepository<Product, Integer>, JpaSpecificationExecutor<Product>,
+        ProductSummaryQueries, ProductStockUpdates {
+
+    // Read-only projections: only the listed columns are selected and no entities are managed.
+    // Summaries with a chosen column list come from ProductSummaryQueries.
+
+    String DETAIL = "SELECT new com.stack.spring.dto.ProductDetail(p.id, p.name, p.description, p.brand, p.price, " +
+            "p.category, p.releaseDate, p.productAvailable, p.stockQuantity, p.imageName, p.imageType, p.imageKey) " +
+            "FROM Product p ";
+
+    @Transactional(readOnly = true)
+    @Query(DETAIL + "WHERE p.id = :id")
+    Optional<ProductDetail> findDetailById(@Param("id") int id);
+
+    @Transactional(readOnly = true)
+    @Query(DETAIL + "WHERE p.id IN :ids")
+    List<ProductDetail> findDetailsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // Cursor over the whole catalog for exports; the caller holds the transaction and closes the stream
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(DETAIL + "ORDER BY p.id")
+    Stream<ProductDetail> streamDetails();
+
+    // app.search.mode=postgres; search_vector and the indexes come from PostgresSearchSchema
+    @Query(value = "SELECT p.id FROM product p " +
+            "WHERE p.search_vector @@ to_tsquery('simple', :tsQuery) OR lower(p.name) LIKE :like " +
+            "ORDER BY ts_rank(p.search_vector, to_tsquery('simple', :tsQuery)) DESC, p.id " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Integer> fullTextSearch(@Param("tsQuery") String tsQuery, @Param("like") String like, @Param("limit") int limit);
+
+    boolean existsByImageKey(String imageKey);
 }
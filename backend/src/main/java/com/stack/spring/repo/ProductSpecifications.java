@@ -0,0 +1,52 @@
+package com.stack.spring.repo;
+
+import com.stack.spring.dto.ProductFilter;
+import com.stack.spring.dto.ProductSort;
+import com.stack.spring.facet.index.PriceBuckets;
+import com.stack.spring.model.Product;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {}
+
+    /** @throws IllegalArgumentException if the price bucket is malformed */
+    public static Specification<Product> matching(ProductFilter f) {
+        PriceBuckets.Range bucket = f == null || f.getPriceBucket() == null ? null : PriceBuckets.parse(f.getPriceBucket());
+        return (root, query, cb) -> {
+            if (f == null) return cb.and();
+            List<Predicate> where = new ArrayList<>();
+            if (f.getCategory() != null) where.add(cb.equal(root.get("category"), f.getCategory()));
+            if (f.getBrand() != null) where.add(cb.equal(root.get("brand"), f.getBrand()));
+            if (f.getAvailable() != null) where.add(cb.equal(root.get("productAvailable"), f.getAvailable()));
+            if (f.getMinPrice() != null) where.add(cb.greaterThanOrEqualTo(root.get("price"), f.getMinPrice()));
+            if (f.getMaxPrice() != null) where.add(cb.lessThanOrEqualTo(root.get("price"), f.getMaxPrice()));
+            if (bucket != null) {
+                where.add(cb.greaterThanOrEqualTo(root.get("price"), bucket.min()));
+                if (bucket.maxExclusive() != null) where.add(cb.lessThan(root.get("price"), bucket.maxExclusive()));
+            }
+            return cb.and(where.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Rows strictly after {@code (value, id)} in {@code (sort, id)} order, i.e.
+     * {@code value > :v OR (value = :v AND id > :id)} (mirrored when descending).
+     * Matches the composite indexes on Product, so deep pages cost the same as the first.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<Product> after(ProductSort sort, boolean desc, Comparable value, int id) {
+        return (root, query, cb) -> {
+            Expression<Comparable> col = root.get(sort.property());
+            Expression<Integer> idCol = root.get("id");
+            Predicate beyond = desc ? cb.lessThan(col, value) : cb.greaterThan(col, value);
+            Predicate tie = cb.and(cb.equal(col, value), desc ? cb.lessThan(idCol, id) : cb.greaterThan(idCol, id));
+            return cb.or(beyond, tie);
+        };
+    }
+}
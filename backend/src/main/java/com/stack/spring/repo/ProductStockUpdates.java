@@ -0,0 +1,58 @@
+package com.stack.spring.repo;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stock writes done in the database instead of read-modify-write on loaded entities,
+ * so concurrent buyers of the same product can never oversell it. What the product row
+ * can sell is {@code stock_quantity - reserved_quantity - striped_quantity}: reserved
+ * units are held by unpaid orders (see {@code StockHoldService}) and striped ones are
+ * sold from a hot product's stripes (see {@code HotStockService}).
+ * <p>
+ * Each method sends one JDBC batch and must run in the caller's transaction, which has
+ * to roll back if any ids are returned.
+ */
+public interface ProductStockUpdates {
+
+    /**
+     * Takes each quantity off its product's stock, but only where that much is available,
+     * and clears {@code productAvailable} when a product runs out.
+     *
+     * @param qtyByProductId quantity to take, by product id
+     * @return ids that could not be decremented (missing or not enough stock); empty on success
+     */
+    List<Integer> decrementStock(Map<Integer, Integer> qtyByProductId);
+
+    /**
+     * Reserves each quantity where that much is available; stock itself is unchanged.
+     *
+     * @return ids that could not be reserved; empty on success
+     */
+    List<Integer> reserveStock(Map<Integer, Integer> qtyByProductId);
+
+    /** Gives reserved units back to available-to-sell. */
+    void releaseReserved(Map<Integer, Integer> qtyByProductId);
+
+    /**
+     * Turns reserved units into a sale: takes them off both stock and reserved.
+     *
+     * @return ids whose stock was lowered below the reservation in the meantime; empty on success
+     */
+    List<Integer> consumeReserved(Map<Integer, Integer> qtyByProductId);
+
+    /**
+     * Settles a hot product's stripes against its row: {@code sold} units sold from the
+     * stripes come off stock, and {@code dealt} more units go out to the stripes (negative
+     * to take units back).
+     */
+    void settleStripes(int productId, int sold, int dealt);
+
+    /**
+     * Locks the rows, in id order, until the caller's transaction ends and returns what
+     * each can sell. For handing one product's stock out to several orders at once;
+     * missing ids are left out.
+     */
+    Map<Integer, Integer> lockAvailable(Collection<Integer> productIds);
+}
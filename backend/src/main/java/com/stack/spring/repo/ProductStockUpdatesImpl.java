@@ -0,0 +1,119 @@
+package com.stack.spring.repo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Transactional(propagation = Propagation.MANDATORY)
+class ProductStockUpdatesImpl implements ProductStockUpdates {
+
+    // SET expressions see the old row, so the CASE tests the stock left after this decrement
+    private static final String SOLD_OUT = "product_available = CASE WHEN stock_quantity - ? > 0 " +
+            "THEN product_available ELSE FALSE END";
+
+    private static final String DECREMENT = "UPDATE product SET stock_quantity = stock_quantity - ?, " + SOLD_OUT +
+            " WHERE id = ? AND stock_quantity - reserved_quantity - striped_quantity >= ?";
+
+    private static final String RESERVE = "UPDATE product SET reserved_quantity = reserved_quantity + ? " +
+            "WHERE id = ? AND stock_quantity - reserved_quantity - striped_quantity >= ?";
+
+    private static final String RELEASE = "UPDATE product SET reserved_quantity = GREATEST(reserved_quantity - ?, 0) " +
+            "WHERE id = ?";
+
+    private static final String CONSUME = "UPDATE product SET stock_quantity = stock_quantity - ?, " +
+            "reserved_quantity = GREATEST(reserved_quantity - ?, 0), " + SOLD_OUT +
+            " WHERE id = ? AND stock_quantity - striped_quantity >= ?";
+
+    private static final String SETTLE_STRIPES = "UPDATE product SET stock_quantity = stock_quantity - ?, " +
+            "striped_quantity = striped_quantity - ? + ?, " + SOLD_OUT + " WHERE id = ?";
+
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement ps, int id, int qty) throws SQLException;
+    }
+
+    private final JdbcTemplate jdbc;
+
+    ProductStockUpdatesImpl(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public List<Integer> decrementStock(Map<Integer, Integer> qtyByProductId) {
+        return batch(DECREMENT, qtyByProductId, (ps, id, qty) -> {
+            ps.setInt(1, qty);
+            ps.setInt(2, qty);
+            ps.setInt(3, id);
+            ps.setInt(4, qty);
+        });
+    }
+
+    @Override
+    public List<Integer> reserveStock(Map<Integer, Integer> qtyByProductId) {
+        return batch(RESERVE, qtyByProductId, (ps, id, qty) -> {
+            ps.setInt(1, qty);
+            ps.setInt(2, id);
+            ps.setInt(3, qty);
+        });
+    }
+
+    @Override
+    public void releaseReserved(Map<Integer, Integer> qtyByProductId) {
+        batch(RELEASE, qtyByProductId, (ps, id, qty) -> {
+            ps.setInt(1, qty);
+            ps.setInt(2, id);
+        });
+    }
+
+    @Override
+    public List<Integer> consumeReserved(Map<Integer, Integer> qtyByProductId) {
+        return batch(CONSUME, qtyByProductId, (ps, id, qty) -> {
+            ps.setInt(1, qty);
+            ps.setInt(2, qty);
+            ps.setInt(3, qty);
+            ps.setInt(4, id);
+            ps.setInt(5, qty);
+        });
+    }
+
+    @Override
+    public void settleStripes(int productId, int sold, int dealt) {
+        jdbc.update(SETTLE_STRIPES, sold, sold, dealt, sold, productId);
+    }
+
+    @Override
+    public Map<Integer, Integer> lockAvailable(Collection<Integer> productIds) {
+        Map<Integer, Integer> available = new HashMap<>();
+        if (productIds.isEmpty()) return available;
+        String in = String.join(", ", Collections.nCopies(productIds.size(), "?"));
+        jdbc.query("SELECT id, stock_quantity - reserved_quantity - striped_quantity FROM product " +
+                        "WHERE id IN (" + in + ") ORDER BY id FOR UPDATE",
+                rs -> { available.put(rs.getInt(1), rs.getInt(2)); }, productIds.toArray());
+        return available;
+    }
+
+    /** Runs {@code sql} once per product as one batch and returns the ids it did not update. */
+    private List<Integer> batch(String sql, Map<Integer, Integer> qtyByProductId, Binder binder) {
+        if (qtyByProductId.isEmpty()) return List.of();
+        // rows are locked in id order, so two orders sharing products cannot deadlock
+        List<Map.Entry<Integer, Integer>> items = new ArrayList<>(new TreeMap<>(qtyByProductId).entrySet());
+        int[] counts = jdbc.batchUpdate(sql, items, items.size(),
+                (ps, it) -> binder.bind(ps, it.getKey(), it.getValue()))[0];
+
+        List<Integer> failed = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) failed.add(items.get(i).getKey());
+        }
+        return failed;
+    }
+}
@@ -0,0 +1,21 @@
+package com.stack.spring.repo;
+
+import com.stack.spring.dto.FieldSet;
+import com.stack.spring.dto.ProductSummary;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Summary queries that select only the columns of a {@link FieldSet}. Fields
+ * outside the set are left null (or 0/false) in the returned summaries.
+ */
+public interface ProductSummaryQueries {
+
+    List<ProductSummary> findSummaries(FieldSet fields);
+
+    List<ProductSummary> findSummariesByIds(Collection<Integer> ids, FieldSet fields);
+
+    /** Case-insensitive substring match on name, description, brand or category. */
+    List<ProductSummary> searchSummaries(String keyword, FieldSet fields);
+}
@@ -0,0 +1,69 @@
+package com.stack.spring.repo;
+
+import com.stack.spring.dto.FieldSet;
+import com.stack.spring.dto.ProductField;
+import com.stack.spring.dto.ProductSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Transactional(readOnly = true)
+class ProductSummaryQueriesImpl implements ProductSummaryQueries {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<ProductSummary> findSummaries(FieldSet fields) {
+        return list(query(fields, ""), fields);
+    }
+
+    @Override
+    public List<ProductSummary> findSummariesByIds(Collection<Integer> ids, FieldSet fields) {
+        if (ids.isEmpty()) return List.of();
+        return list(query(fields, "WHERE p.id IN :ids").setParameter("ids", ids), fields);
+    }
+
+    @Override
+    public List<ProductSummary> searchSummaries(String keyword, FieldSet fields) {
+        TypedQuery<Tuple> q = query(fields, "WHERE " +
+                "LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+                "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+                "LOWER(p.brand) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+                "LOWER(p.category) LIKE LOWER(CONCAT('%', :keyword, '%'))");
+        return list(q.setParameter("keyword", keyword), fields);
+    }
+
+    private TypedQuery<Tuple> query(FieldSet fields, String where) {
+        return em.createQuery("SELECT " + fields.jpqlSelect() + " FROM Product p " + where, Tuple.class);
+    }
+
+    private static List<ProductSummary> list(TypedQuery<Tuple> query, FieldSet fields) {
+        List<ProductField> selected = fields.fields();
+        return query.getResultStream().map(row -> toSummary(row, selected)).toList();
+    }
+
+    // columns come back in FieldSet order
+    private static ProductSummary toSummary(Tuple row, List<ProductField> selected) {
+        Object[] v = new Object[ProductField.values().length];
+        for (int i = 0; i < selected.size(); i++) {
+            v[selected.get(i).ordinal()] = row.get(i);
+        }
+        return new ProductSummary(
+                v[ProductField.ID.ordinal()] instanceof Integer id ? id : 0,
+                (String) v[ProductField.NAME.ordinal()],
+                (String) v[ProductField.BRAND.ordinal()],
+                (String) v[ProductField.CATEGORY.ordinal()],
+                (BigDecimal) v[ProductField.PRICE.ordinal()],
+                (LocalDate) v[ProductField.RELEASE_DATE.ordinal()],
+                v[ProductField.PRODUCT_AVAILABLE.ordinal()] instanceof Boolean b && b,
+                v[ProductField.STOCK_QUANTITY.ordinal()] instanceof Integer q ? q : 0);
+    }
+}
@@ -0,0 +1,39 @@
+package com.stack.spring.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Units of one product held for an unpaid order until {@link #expiresAt}. The running
+ * total per product is kept in {@code product.reserved_quantity}; these rows say whose
+ * holds they are and when they lapse.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_stock_hold_reference", columnList = "reference"),
+        @Index(name = "idx_stock_hold_expires_at", columnList = "expiresAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockHold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_hold_seq")
+    @SequenceGenerator(name = "stock_hold_seq", sequenceName = "stock_hold_seq", allocationSize = 50)
+    private Long id;
+
+    // the payment order id, or a provisional key until that order exists
+    @Column(nullable = false, length = 64)
+    private String reference;
+
+    private int productId;
+    private int quantity;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+}
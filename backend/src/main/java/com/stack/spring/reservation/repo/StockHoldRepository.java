@@ -0,0 +1,22 @@
+package com.stack.spring.reservation.repo;
+
+import com.stack.spring.reservation.model.StockHold;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface StockHoldRepository extends JpaRepository<StockHold, Long> {
+
+    List<StockHold> findByReference(String reference);
+
+    List<StockHold> findByExpiresAtBeforeOrderByExpiresAt(Instant now, Limit limit);
+
+    @Modifying
+    @Query("UPDATE StockHold h SET h.reference = :newReference WHERE h.reference = :reference")
+    int rename(@Param("reference") String reference, @Param("newReference") String newReference);
+}
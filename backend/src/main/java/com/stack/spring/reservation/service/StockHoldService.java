@@ -0,0 +1,140 @@
+package com.stack.spring.reservation.service;
+
+import com.stack.spring.hotstock.service.HotStockService;
+import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.reservation.model.StockHold;
+import com.stack.spring.reservation.repo.StockHoldRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Time-bounded stock holds between create-order and payment verify. A hold moves units
+ * from available-to-sell into {@code product.reserved_quantity} with the same kind of
+ * conditional UPDATE as a sale, so two orders can never hold the last unit. Holds are
+ * taken at fulfillment, or given back by {@link StockHoldSweeper} once they expire.
+ * <p>
+ * Every hold row is released at most once: whoever deletes it (fulfillment, the sweeper
+ * on any node, a cancelled order) is the one that adjusts the product.
+ */
+@Service
+public class StockHoldService {
+
+    private static final String DELETE = "DELETE FROM stock_hold WHERE id = ?";
+
+    private final StockHoldRepository holdRepo;
+    private final ProductRepo productRepo;
+    private final HotStockService hotStock;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final Duration ttl;
+    private final int sweepBatch;
+
+    public StockHoldService(StockHoldRepository holdRepo, ProductRepo productRepo, HotStockService hotStock, JdbcTemplate jdbc,
+                            PlatformTransactionManager txManager,
+                            @Value("${app.reservations.ttl:10m}") Duration ttl,
+                            @Value("${app.reservations.sweep-batch:500}") int sweepBatch) {
+        this.holdRepo = holdRepo;
+        this.productRepo = productRepo;
+        this.hotStock = hotStock;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.ttl = ttl;
+        this.sweepBatch = sweepBatch;
+    }
+
+    /**
+     * Holds every quantity under {@code reference}, or nothing at all.
+     *
+     * @return ids without enough available stock; empty when the hold was placed
+     */
+    public List<Integer> hold(String reference, Map<Integer, Integer> qtyByProductId) {
+        List<Integer> shortIds = tryHold(reference, qtyByProductId);
+        // a hot product's row can run dry between the check and the hold; the second try
+        // sees it and pulls the stripes back (see HotStockService#reserveStock)
+        if (shortIds.stream().anyMatch(hotStock::isHot)) {
+            shortIds = tryHold(reference, qtyByProductId);
+        }
+        return shortIds;
+    }
+
+    /** Re-keys holds placed under a provisional reference, e.g. once the payment order id is known. */
+    @Transactional
+    public void rename(String reference, String newReference) {
+        holdRepo.rename(reference, newReference);
+    }
+
+    /** Gives back whatever is still held under {@code reference}. */
+    public void release(String reference) {
+        tx.executeWithoutResult(s -> productRepo.releaseReserved(delete(holdRepo.findByReference(reference))));
+    }
+
+    /**
+     * Removes the holds of {@code reference} for a sale, leaving the units in
+     * {@code reserved_quantity}; the caller turns them into a sale with
+     * {@link ProductRepo#consumeReserved} in the same transaction.
+     *
+     * @return held quantity by product id; empty if the holds expired and were swept
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Integer, Integer> take(String reference) {
+        return delete(holdRepo.findByReference(reference));
+    }
+
+    /**
+     * Releases up to one batch of expired holds.
+     *
+     * @return the number of holds looked at; a full batch means there may be more
+     */
+    public int sweepExpired() {
+        return tx.execute(s -> {
+            List<StockHold> expired = holdRepo.findByExpiresAtBeforeOrderByExpiresAt(Instant.now(), Limit.of(sweepBatch));
+            productRepo.releaseReserved(delete(expired));
+            return expired.size();
+        });
+    }
+
+    int sweepBatch() {
+        return sweepBatch;
+    }
+
+    private List<Integer> tryHold(String reference, Map<Integer, Integer> qtyByProductId) {
+        Instant expiresAt = Instant.now().plus(ttl);
+        return tx.execute(s -> {
+            List<Integer> shortIds = hotStock.reserveStock(qtyByProductId);
+            if (!shortIds.isEmpty()) {
+                s.setRollbackOnly();
+                return shortIds;
+            }
+            holdRepo.saveAll(qtyByProductId.entrySet().stream()
+                    .map(e -> new StockHold(null, reference, e.getKey(), e.getValue(), expiresAt))
+                    .toList());
+            return List.of();
+        });
+    }
+
+    // Deletes the rows in one batch and sums the quantities of those this call actually deleted
+    private Map<Integer, Integer> delete(List<StockHold> holds) {
+        Map<Integer, Integer> qtyByProductId = new HashMap<>();
+        if (holds.isEmpty()) return qtyByProductId;
+        int[] counts = jdbc.batchUpdate(DELETE, holds, holds.size(), (ps, h) -> ps.setLong(1, h.getId()))[0];
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                StockHold h = holds.get(i);
+                qtyByProductId.merge(h.getProductId(), h.getQuantity(), Integer::sum);
+            }
+        }
+        return qtyByProductId;
+    }
+}
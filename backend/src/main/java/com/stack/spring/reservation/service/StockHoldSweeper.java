@@ -0,0 +1,33 @@
+package com.stack.spring.reservation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/** Gives the stock of abandoned orders back once their holds expire. */
+@Component
+public class StockHoldSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(StockHoldSweeper.class);
+
+    private final StockHoldService holds;
+
+    public StockHoldSweeper(StockHoldService holds) {
+        this.holds = holds;
+    }
+
+    @Scheduled(initialDelayString = "${app.reservations.sweep-interval:15s}",
+            fixedDelayString = "${app.reservations.sweep-interval:15s}")
+    public void sweep() {
+        int released = 0;
+        int n;
+        do {
+            n = holds.sweepExpired();
+            released += n;
+        } while (n == holds.sweepBatch());
+        if (released > 0) {
+            log.info("Released {} expired stock holds", released);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.stack.spring.search.config;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Database objects for {@code app.search.mode=postgres}. Hibernate doesn't know about
+ * them, so they are created here; every statement is idempotent.
+ * <p>
+ * {@code search_vector} is a generated column, so Postgres keeps it current on every
+ * insert/update without triggers. The 'simple' config avoids language-specific
+ * stemming of brand and model names.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.search.mode", havingValue = "postgres")
+public class PostgresSearchSchema {
+
+    @Bean
+    @Order(-10)
+    CommandLineRunner createSearchSchema(JdbcTemplate jdbc) {
+        return args -> {
+            jdbc.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            jdbc.execute("ALTER TABLE product ADD COLUMN IF NOT EXISTS search_vector tsvector " +
+                    "GENERATED ALWAYS AS (" +
+                    "setweight(to_tsvector('simple', coalesce(name, '')), 'A') || " +
+                    "setweight(to_tsvector('simple', coalesce(brand, '')), 'B') || " +
+                    "setweight(to_tsvector('simple', coalesce(category, '')), 'C') || " +
+                    "setweight(to_tsvector('simple', coalesce(description, '')), 'D')) STORED");
+            jdbc.execute("CREATE INDEX IF NOT EXISTS idx_product_search_vector ON product USING GIN (search_vector)");
+            jdbc.execute("CREATE INDEX IF NOT EXISTS idx_product_name_trgm ON product USING GIN (lower(name) gin_trgm_ops)");
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.stack.spring.search.dto;
+
+import com.stack.spring.dto.ProductSummary;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResponse {
+    private List<ProductSummary> items;
+    private String suggestion; // corrected query, set only when the query as typed found nothing
+    private Map<String, Map<String, Integer>> facets; // field -> value -> count among items
+}
@@ -0,0 +1,16 @@
+package com.stack.spring.search.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Suggestion {
+    public enum Type { PRODUCT, BRAND, CATEGORY }
+
+    private String text;
+    private Type type;
+    private Integer productId; // only for PRODUCT
+}
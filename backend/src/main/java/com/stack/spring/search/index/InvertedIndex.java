@@ -0,0 +1,201 @@
+package com.stack.spring.search.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Term -> posting list index over int doc ids. Not thread-safe; callers guard it.
+ * <p>
+ * A query term matches indexed terms it is a prefix of (so "iph" finds "iphone"),
+ * with exact matches counting double. Multi-term queries are AND-ed by intersecting
+ * the sorted doc ids, summing weights into the score.
+ */
+public final class InvertedIndex {
+
+    private static final int EXACT_BOOST = 2;
+
+    private final TreeMap<String, PostingList> terms = new TreeMap<>();
+    private final Map<Integer, String[]> termsByDoc = new HashMap<>();
+
+    public int docCount() {
+        return termsByDoc.size();
+    }
+
+    /** Replaces whatever was indexed for {@code doc}. */
+    public void put(int doc, Map<String, Integer> termWeights) {
+        remove(doc);
+        for (Map.Entry<String, Integer> e : termWeights.entrySet()) {
+            terms.computeIfAbsent(e.getKey(), k -> new PostingList()).add(doc, e.getValue());
+        }
+        termsByDoc.put(doc, termWeights.keySet().toArray(String[]::new));
+    }
+
+    public void remove(int doc) {
+        String[] old = termsByDoc.remove(doc);
+        if (old == null) return;
+        for (String term : old) {
+            PostingList list = terms.get(term);
+            if (list == null) continue;
+            list.remove(doc);
+            if (list.size() == 0) terms.remove(term);
+        }
+    }
+
+    public void clear() {
+        terms.clear();
+        termsByDoc.clear();
+    }
+
+    /** The {@code limit} best matching docs, best score first (ties by ascending id). */
+    public Hits search(List<String> queryTerms, int limit) {
+        if (queryTerms.isEmpty()) return Hits.EMPTY;
+
+        List<Hits> perTerm = new ArrayList<>(queryTerms.size());
+        for (String q : queryTerms) {
+            Hits h = matchTerm(q);
+            if (h.size() == 0) return Hits.EMPTY;
+            perTerm.add(h);
+        }
+        // intersect smallest first so the running result shrinks fastest
+        perTerm.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        Hits acc = perTerm.get(0);
+        for (int i = 1; i < perTerm.size() && acc.size() > 0; i++) {
+            acc = intersect(acc, perTerm.get(i));
+        }
+        return acc.top(limit);
+    }
+
+    // union of every posting list whose term starts with q, as sorted docs with summed weights
+    private Hits matchTerm(String q) {
+        NavigableMap<String, PostingList> range = terms.subMap(q, true, q + Character.MAX_VALUE, false);
+        int total = 0;
+        for (PostingList list : range.values()) total += list.size();
+        if (total == 0) return Hits.EMPTY;
+
+        long[] packed = new long[total];
+        int n = 0;
+        for (Map.Entry<String, PostingList> e : range.entrySet()) {
+            int boost = e.getKey().equals(q) ? EXACT_BOOST : 1;
+            PostingList list = e.getValue();
+            for (int i = 0; i < list.size(); i++) {
+                packed[n++] = ((long) list.doc(i) << 32) | (list.weight(i) * boost);
+            }
+        }
+        Arrays.sort(packed);
+
+        int[] docs = new int[total];
+        int[] scores = new int[total];
+        int m = -1;
+        for (long p : packed) {
+            int doc = (int) (p >>> 32);
+            int w = (int) p;
+            if (m >= 0 && docs[m] == doc) {
+                scores[m] += w;
+            } else {
+                m++;
+                docs[m] = doc;
+                scores[m] = w;
+            }
+        }
+        return new Hits(docs, scores, m + 1);
+    }
+
+    private static Hits intersect(Hits a, Hits b) {
+        int[] docs = new int[Math.min(a.size(), b.size())];
+        int[] scores = new int[docs.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.size() && j < b.size()) {
+            int da = a.docs[i], db = b.docs[j];
+            if (da == db) {
+                docs[n] = da;
+                scores[n++] = a.scores[i++] + b.scores[j++];
+            } else if (da < db) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return new Hits(docs, scores, n);
+    }
+
+    /** Doc ids with their scores. */
+    public static final class Hits {
+
+        static final Hits EMPTY = new Hits(new int[0], new int[0], 0);
+
+        private final int[] docs;
+        private final int[] scores;
+        private final int size;
+
+        Hits(int[] docs, int[] scores, int size) {
+            this.docs = docs;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        public int size() { return size; }
+
+        public int doc(int i) { return docs[i]; }
+
+        public int score(int i) { return scores[i]; }
+
+        /**
+         * The best {@code k}, best first. A min-heap of k rank keys keeps the worst of them
+         * on top, so n hits cost n log k instead of a sort of all n.
+         */
+        Hits top(int k) {
+            int n = Math.min(k, size);
+            long[] heap = new long[n];
+            for (int i = 0; i < size; i++) {
+                long key = rankKey(scores[i], docs[i]);
+                if (i < n) {
+                    heap[i] = key;
+                    siftUp(heap, i);
+                } else if (key > heap[0]) {
+                    heap[0] = key;
+                    siftDown(heap, n);
+                }
+            }
+            Arrays.sort(heap);
+            int[] d = new int[n];
+            int[] s = new int[n];
+            for (int i = 0; i < n; i++) {
+                long key = heap[n - 1 - i];
+                s[i] = (int) (key >>> 32);
+                d[i] = Integer.MAX_VALUE - (int) key;
+            }
+            return new Hits(d, s, n);
+        }
+
+        // higher score first, then lower doc; scores and docs are never negative
+        private static long rankKey(int score, int doc) {
+            return ((long) score << 32) | (Integer.MAX_VALUE - doc);
+        }
+
+        private static void siftUp(long[] heap, int i) {
+            long key = heap[i];
+            while (i > 0 && heap[(i - 1) >>> 1] > key) {
+                heap[i] = heap[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            heap[i] = key;
+        }
+
+        private static void siftDown(long[] heap, int n) {
+            long key = heap[0];
+            int i = 0;
+            for (int child = 1; child < n; child = 2 * i + 1) {
+                if (child + 1 < n && heap[child + 1] < heap[child]) child++;
+                if (heap[child] >= key) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = key;
+        }
+    }
+}
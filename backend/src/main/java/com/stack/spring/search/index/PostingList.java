@@ -0,0 +1,45 @@
+package com.stack.spring.search.index;
+
+import java.util.Arrays;
+
+/**
+ * Doc ids in ascending order with a parallel weight per doc, kept in primitive arrays.
+ */
+final class PostingList {
+
+    private int[] docs = new int[4];
+    private int[] weights = new int[4];
+    private int size;
+
+    int size() { return size; }
+
+    int doc(int i) { return docs[i]; }
+
+    int weight(int i) { return weights[i]; }
+
+    void add(int doc, int weight) {
+        int pos = Arrays.binarySearch(docs, 0, size, doc);
+        if (pos >= 0) {
+            weights[pos] += weight;
+            return;
+        }
+        pos = -pos - 1;
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        System.arraycopy(docs, pos, docs, pos + 1, size - pos);
+        System.arraycopy(weights, pos, weights, pos + 1, size - pos);
+        docs[pos] = doc;
+        weights[pos] = weight;
+        size++;
+    }
+
+    void remove(int doc) {
+        int pos = Arrays.binarySearch(docs, 0, size, doc);
+        if (pos < 0) return;
+        System.arraycopy(docs, pos + 1, docs, pos, size - pos - 1);
+        System.arraycopy(weights, pos + 1, weights, pos, size - pos - 1);
+        size--;
+    }
+}
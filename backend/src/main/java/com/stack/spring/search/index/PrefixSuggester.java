@@ -0,0 +1,132 @@
+package com.stack.spring.search.index;
+
+import com.stack.spring.search.dto.Suggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Immutable typeahead structure: lower-cased keys in one sorted array with parallel
+ * score/payload arrays, plus a max segment tree over the scores. A prefix maps to a
+ * contiguous key range (two binary searches); the top k of that range come out of
+ * the tree in O(k log n) no matter how many keys share the prefix.
+ */
+public final class PrefixSuggester {
+
+    public static final PrefixSuggester EMPTY = new Builder().build();
+
+    private final String[] keys;
+    private final long[] scores;
+    private final Suggestion[] payloads;
+    private final int[] tree; // index of the max score in each node's range
+    private final int leaves;
+
+    private PrefixSuggester(String[] keys, long[] scores, Suggestion[] payloads) {
+        this.keys = keys;
+        this.scores = scores;
+        this.payloads = payloads;
+        int n = 1;
+        while (n < Math.max(1, keys.length)) n <<= 1;
+        this.leaves = n;
+        this.tree = new int[2 * n];
+        Arrays.fill(tree, -1);
+        for (int i = 0; i < keys.length; i++) tree[n + i] = i;
+        for (int i = n - 1; i >= 1; i--) tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /** Best {@code k} suggestions whose key starts with {@code prefix} (already lower-cased). */
+    public List<Suggestion> suggest(String prefix, int k) {
+        int lo = lowerBound(prefix);
+        int hi = lowerBound(prefix + Character.MAX_VALUE);
+        List<Suggestion> out = new ArrayList<>(k);
+        if (lo >= hi) return out;
+
+        // ranges ordered by their best entry; popping one splits it around that entry
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> compare(b[2], a[2]));
+        ranges.add(new int[]{lo, hi, argMax(lo, hi)});
+        Set<Suggestion> seen = new HashSet<>();
+        while (!ranges.isEmpty() && out.size() < k) {
+            int[] r = ranges.poll();
+            int best = r[2];
+            // one product is reachable from several word keys; list it once
+            if (seen.add(payloads[best])) out.add(payloads[best]);
+            if (r[0] < best) ranges.add(new int[]{r[0], best, argMax(r[0], best)});
+            if (best + 1 < r[1]) ranges.add(new int[]{best + 1, r[1], argMax(best + 1, r[1])});
+        }
+        return out;
+    }
+
+    private int lowerBound(String key) {
+        int lo = 0, hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // index of the best entry in [from, to)
+    private int argMax(int from, int to) {
+        int best = -1;
+        for (int l = from + leaves, r = to + leaves; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) best = better(best, tree[l++]);
+            if ((r & 1) == 1) best = better(best, tree[--r]);
+        }
+        return best;
+    }
+
+    private int better(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        return compare(a, b) >= 0 ? a : b;
+    }
+
+    // higher score wins, then the alphabetically first key
+    private int compare(int a, int b) {
+        if (scores[a] != scores[b]) return Long.compare(scores[a], scores[b]);
+        return Integer.compare(b, a);
+    }
+
+    public static final class Builder {
+        private String[] keys = new String[64];
+        private long[] scores = new long[64];
+        private Suggestion[] payloads = new Suggestion[64];
+        private int size;
+
+        public Builder add(String key, long score, Suggestion payload) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+                payloads = Arrays.copyOf(payloads, size * 2);
+            }
+            keys[size] = key;
+            scores[size] = score;
+            payloads[size++] = payload;
+            return this;
+        }
+
+        public PrefixSuggester build() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> keys[a].compareTo(keys[b]));
+
+            String[] k = new String[size];
+            long[] s = new long[size];
+            Suggestion[] p = new Suggestion[size];
+            for (int i = 0; i < size; i++) {
+                k[i] = keys[order[i]];
+                s[i] = scores[order[i]];
+                p[i] = payloads[order[i]];
+            }
+            return new PrefixSuggester(k, s, p);
+        }
+    }
+}
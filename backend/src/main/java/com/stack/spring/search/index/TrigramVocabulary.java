@@ -0,0 +1,162 @@
+package com.stack.spring.search.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Reference-counted set of words with a trigram index for spelling correction.
+ * Not thread-safe; callers guard it.
+ * <p>
+ * A lookup only scores words sharing enough trigrams with the query, examines a
+ * fixed number of them, and stops each edit-distance computation as soon as it
+ * exceeds the allowed distance, so the cost of one lookup is capped regardless of
+ * vocabulary size.
+ */
+public final class TrigramVocabulary {
+
+    /** Longer words are not corrected; also bounds the distance matrix. */
+    public static final int MAX_WORD_LENGTH = 32;
+
+    // candidates scored by edit distance, best trigram overlap first
+    private static final int MAX_CANDIDATES = 64;
+    // posting entries visited per lookup before giving up on the remaining trigrams
+    private static final int MAX_POSTINGS_VISITED = 20_000;
+
+    private final TreeMap<String, int[]> words = new TreeMap<>();
+    private final Map<String, Set<String>> byTrigram = new HashMap<>();
+
+    public int size() {
+        return words.size();
+    }
+
+    public void add(String word) {
+        int[] count = words.get(word);
+        if (count != null) {
+            count[0]++;
+            return;
+        }
+        words.put(word, new int[]{1});
+        for (String gram : trigrams(word)) {
+            byTrigram.computeIfAbsent(gram, k -> new HashSet<>()).add(word);
+        }
+    }
+
+    public void remove(String word) {
+        int[] count = words.get(word);
+        if (count == null || --count[0] > 0) return;
+        words.remove(word);
+        for (String gram : trigrams(word)) {
+            Set<String> set = byTrigram.get(gram);
+            if (set == null) continue;
+            set.remove(word);
+            if (set.isEmpty()) byTrigram.remove(gram);
+        }
+    }
+
+    public void clear() {
+        words.clear();
+        byTrigram.clear();
+    }
+
+    /** True if some word starts with {@code prefix}, i.e. prefix search would match it. */
+    public boolean hasPrefix(String prefix) {
+        String next = words.ceilingKey(prefix);
+        return next != null && next.startsWith(prefix);
+    }
+
+    /**
+     * Closest word within {@code maxDistance} edits (insert, delete, substitute or swap
+     * adjacent letters), preferring the most frequent on ties; null if there is none.
+     */
+    public String closest(String word, int maxDistance) {
+        if (word.length() > MAX_WORD_LENGTH) return null;
+        Set<String> grams = trigrams(word);
+
+        Map<String, int[]> overlap = new HashMap<>();
+        int visited = 0;
+        for (String gram : grams) {
+            Set<String> set = byTrigram.get(gram);
+            if (set == null) continue;
+            if (visited + set.size() > MAX_POSTINGS_VISITED) break;
+            visited += set.size();
+            for (String candidate : set) {
+                if (Math.abs(candidate.length() - word.length()) <= maxDistance) {
+                    overlap.computeIfAbsent(candidate, k -> new int[1])[0]++;
+                }
+            }
+        }
+        // each edit touches at most three trigrams
+        int minOverlap = Math.max(1, grams.size() - 3 * maxDistance);
+        List<Map.Entry<String, int[]>> candidates = new ArrayList<>();
+        for (Map.Entry<String, int[]> e : overlap.entrySet()) {
+            if (e.getValue()[0] >= minOverlap) candidates.add(e);
+        }
+        candidates.sort((a, b) -> Integer.compare(b.getValue()[0], a.getValue()[0]));
+
+        String best = null;
+        int bestDistance = maxDistance + 1;
+        int bestCount = 0;
+        for (int i = 0; i < candidates.size() && i < MAX_CANDIDATES; i++) {
+            String candidate = candidates.get(i).getKey();
+            int d = distance(word, candidate, Math.min(maxDistance, bestDistance));
+            int count = words.get(candidate)[0];
+            if (d < bestDistance || (d == bestDistance && best != null
+                    && (count > bestCount || (count == bestCount && candidate.compareTo(best) < 0)))) {
+                best = candidate;
+                bestDistance = d;
+                bestCount = count;
+            }
+        }
+        return bestDistance <= maxDistance ? best : null;
+    }
+
+    // "$" marks word edges so short words still have trigrams: "tv" -> $tv, tv$
+    static Set<String> trigrams(String word) {
+        String s = "$" + word + "$";
+        Set<String> out = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            out.add(s.substring(i, i + 3));
+        }
+        if (out.isEmpty()) out.add(s);
+        return out;
+    }
+
+    /**
+     * Optimal string alignment distance, or {@code max + 1} once every alignment
+     * is known to need more than {@code max} edits.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        int n = a.length(), m = b.length();
+        int[] prev2 = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] cur = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+
+        for (int i = 1; i <= n; i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, prev2[j - 2] + 1);
+                }
+                cur[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) return max + 1;
+            int[] t = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = t;
+        }
+        return Math.min(prev[m], max + 1);
+    }
+}
@@ -0,0 +1,25 @@
+package com.stack.spring.search.service;
+
+import com.stack.spring.dto.FieldSet;
+import com.stack.spring.dto.ProductSummary;
+import com.stack.spring.repo.ProductRepo;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "app.search.mode", havingValue = "like")
+public class LikeProductSearch implements ProductSearch {
+
+    private final ProductRepo productRepo;
+
+    public LikeProductSearch(ProductRepo productRepo) {
+        this.productRepo = productRepo;
+    }
+
+    @Override
+    public List<ProductSummary> search(String keyword, FieldSet fields) {
+        return productRepo.searchSummaries(keyword, fields.withId());
+    }
+}
@@ -0,0 +1,54 @@
+package com.stack.spring.search.service;
+
+import com.stack.spring.dto.FieldSet;
+import com.stack.spring.dto.ProductSummary;
+import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.search.index.Tokenizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Full-text search in Postgres: every term must prefix-match the weighted
+ * {@code product.search_vector} (GIN index), or the keyword must appear in the
+ * name (pg_trgm index). Ranked by {@code ts_rank}. Schema: {@code PostgresSearchSchema}.
+ */
+@Service
+@ConditionalOnProperty(name = "app.search.mode", havingValue = "postgres")
+public class PostgresProductSearch implements ProductSearch {
+
+    private final ProductRepo productRepo;
+    private final int limit;
+
+    public PostgresProductSearch(ProductRepo productRepo, @Value("${app.search.limit:50}") int limit) {
+        this.productRepo = productRepo;
+        this.limit = limit;
+    }
+
+    @Override
+    @Transactional(readOnly = true) // the ranked ids and their rows from one snapshot
+    public List<ProductSummary> search(String keyword, FieldSet fields) {
+        List<String> terms = Tokenizer.tokens(keyword);
+        if (terms.isEmpty()) return List.of();
+
+        // tokens are letters/digits only, so they are safe inside a tsquery
+        String tsQuery = terms.stream().map(t -> t + ":*").collect(Collectors.joining(" & "));
+        String like = "%" + keyword.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        List<Integer> ids = productRepo.fullTextSearch(tsQuery, like, limit);
+        if (ids.isEmpty()) return List.of();
+
+        // ranked ids first, then only the requested columns of those rows
+        Map<Integer, ProductSummary> byId = new HashMap<>();
+        productRepo.findSummariesByIds(ids, fields.withId()).forEach(s -> byId.put(s.id(), s));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+}
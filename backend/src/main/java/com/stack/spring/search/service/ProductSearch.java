@@ -0,0 +1,21 @@
+package com.stack.spring.search.service;
+
+import com.stack.spring.dto.FieldSet;
+import com.stack.spring.dto.ProductSummary;
+
+import java.util.List;
+
+/**
+ * Backend for {@code /api/product/search}, chosen by {@code app.search.mode}:
+ * {@code memory} (default, per-node inverted index), {@code postgres} (full-text
+ * search in the database, for multi-node deployments) or {@code like} (the original
+ * LIKE scan).
+ */
+public interface ProductSearch {
+
+    /**
+     * Products matching {@code keyword}, most relevant first. Database-backed
+     * implementations select only {@code fields} (plus id); the rest may be left empty.
+     */
+    List<ProductSummary> search(String keyword, FieldSet fields);
+}
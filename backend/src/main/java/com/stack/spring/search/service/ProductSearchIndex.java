@@ -0,0 +1,155 @@
+package com.stack.spring.search.service;
+
+import com.stack.spring.catalog.service.CatalogService;
+import com.stack.spring.catalog.snapshot.CatalogSnapshot;
+import com.stack.spring.dto.FieldSet;
+import com.stack.spring.dto.ProductSummary;
+import com.stack.spring.event.ProductChangeApplier;
+import com.stack.spring.event.ProductChangedEvent;
+import com.stack.spring.model.Product;
+import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.search.index.InvertedIndex;
+import com.stack.spring.search.index.Tokenizer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process full-text index over the catalog. Built from the database once the
+ * app is ready, then kept current from {@link ProductChangedEvent}s, re-reading the
+ * changed rows through a {@link ProductChangeApplier}. Only doc ids are kept here;
+ * hits are read back from the {@link CatalogSnapshot}, so search doesn't query the
+ * database once the snapshot is loaded.
+ */
+@Service
+@ConditionalOnProperty(name = "app.search.mode", havingValue = "memory", matchIfMissing = true)
+public class ProductSearchIndex implements ProductSearch {
+
+    // a hit in the name matters more than one in the description
+    private static final int NAME_WEIGHT = 4;
+    private static final int BRAND_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final ProductRepo productRepo;
+    private final CatalogService catalog;
+    private final int limit;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final InvertedIndex index = new InvertedIndex();
+    private final ProductChangeApplier changes;
+
+    public ProductSearchIndex(ProductRepo productRepo, CatalogService catalog,
+                              @Value("${app.search.limit:50}") int limit) {
+        this.productRepo = productRepo;
+        this.catalog = catalog;
+        this.limit = limit;
+        this.changes = new ProductChangeApplier("search-index", productRepo, this::load, this::apply);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() throws InterruptedException {
+        changes.load();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        changes.enqueue(event);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        changes.shutdown();
+    }
+
+    /**
+     * The {@code app.search.limit} most relevant products containing every term of
+     * {@code keyword} (prefix match per term), most relevant first. Hits come whole from
+     * the snapshot; {@code fields} only matters for the output.
+     */
+    @Override
+    public List<ProductSummary> search(String keyword, FieldSet fields) {
+        List<String> terms = Tokenizer.tokens(keyword);
+        int[] ids;
+        lock.readLock().lock();
+        try {
+            InvertedIndex.Hits hits = index.search(terms, limit);
+            ids = new int[hits.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = hits.doc(i);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        CatalogSnapshot snapshot = catalog.current();
+        if (snapshot == null) return loadInOrder(ids); // still starting up
+        List<ProductSummary> out = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            ProductSummary s = snapshot.summary(id);
+            if (s != null) out.add(s); // null: the snapshot hasn't caught up with a create yet
+        }
+        return out;
+    }
+
+    private void load(List<Product> all) {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            all.forEach(this::putLocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Map<Integer, Product> changed) {
+        lock.writeLock().lock();
+        try {
+            changed.forEach((id, p) -> {
+                if (p != null) {
+                    putLocked(p);
+                } else {
+                    index.remove(id);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putLocked(Product p) {
+        Map<String, Integer> weights = new HashMap<>();
+        addField(weights, p.getName(), NAME_WEIGHT);
+        addField(weights, p.getBrand(), BRAND_WEIGHT);
+        addField(weights, p.getCategory(), CATEGORY_WEIGHT);
+        addField(weights, p.getDescription(), DESCRIPTION_WEIGHT);
+        index.put(p.getId(), weights);
+    }
+
+    private List<ProductSummary> loadInOrder(int[] ids) {
+        Map<Integer, ProductSummary> byId = new HashMap<>();
+        productRepo.findSummariesByIds(Arrays.stream(ids).boxed().toList(), FieldSet.ALL).forEach(s -> byId.put(s.id(), s));
+        List<ProductSummary> out = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            ProductSummary s = byId.get(id);
+            if (s != null) out.add(s);
+        }
+        return out;
+    }
+
+    private static void addField(Map<String, Integer> weights, String text, int weight) {
+        for (String token : Tokenizer.tokens(text)) {
+            weights.merge(token, weight, Integer::sum);
+        }
+    }
+}
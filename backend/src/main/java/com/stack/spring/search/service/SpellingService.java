@@ -0,0 +1,129 @@
+package com.stack.spring.search.service;
+
+import com.stack.spring.event.ProductChangeApplier;
+import com.stack.spring.event.ProductChangedEvent;
+import com.stack.spring.model.Product;
+import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.search.index.Tokenizer;
+import com.stack.spring.search.index.TrigramVocabulary;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "Did you mean" corrections for search queries, drawn from the words in product
+ * names, brands and categories. Kept in memory whatever {@code app.search.mode} is,
+ * and current through a {@link ProductChangeApplier}.
+ */
+@Service
+public class SpellingService {
+
+    // queries longer than this are not corrected
+    private static final int MAX_TERMS = 6;
+    // words shorter than this are left alone: too many neighbours to guess from
+    private static final int MIN_WORD_LENGTH = 3;
+
+    private final ProductChangeApplier changes;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TrigramVocabulary vocabulary = new TrigramVocabulary();
+    private final Map<Integer, Set<String>> wordsByProduct = new HashMap<>();
+
+    public SpellingService(ProductRepo productRepo) {
+        this.changes = new ProductChangeApplier("spelling-index", productRepo, this::load, this::apply);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() throws InterruptedException {
+        changes.load();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        changes.enqueue(event);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        changes.shutdown();
+    }
+
+    /**
+     * {@code keyword} with each unknown word replaced by its closest known word,
+     * or null if nothing could be corrected.
+     */
+    public String correct(String keyword) {
+        List<String> terms = Tokenizer.tokens(keyword);
+        if (terms.isEmpty() || terms.size() > MAX_TERMS) return null;
+
+        List<String> corrected = new ArrayList<>(terms.size());
+        boolean changed = false;
+        lock.readLock().lock();
+        try {
+            for (String term : terms) {
+                String replacement = null;
+                if (term.length() >= MIN_WORD_LENGTH && !vocabulary.hasPrefix(term)) {
+                    replacement = vocabulary.closest(term, term.length() <= 4 ? 1 : 2);
+                }
+                corrected.add(replacement != null ? replacement : term);
+                changed |= replacement != null;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return changed ? String.join(" ", corrected) : null;
+    }
+
+    private void load(List<Product> all) {
+        lock.writeLock().lock();
+        try {
+            vocabulary.clear();
+            wordsByProduct.clear();
+            all.forEach(this::putLocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Map<Integer, Product> changed) {
+        lock.writeLock().lock();
+        try {
+            changed.forEach((id, p) -> {
+                if (p != null) {
+                    putLocked(p);
+                } else {
+                    removeLocked(id);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putLocked(Product p) {
+        removeLocked(p.getId());
+        Set<String> words = new LinkedHashSet<>();
+        words.addAll(Tokenizer.tokens(p.getName()));
+        words.addAll(Tokenizer.tokens(p.getBrand()));
+        words.addAll(Tokenizer.tokens(p.getCategory()));
+        words.removeIf(w -> w.length() > TrigramVocabulary.MAX_WORD_LENGTH);
+        words.forEach(vocabulary::add);
+        wordsByProduct.put(p.getId(), words);
+    }
+
+    private void removeLocked(int id) {
+        Set<String> old = wordsByProduct.remove(id);
+        if (old != null) old.forEach(vocabulary::remove);
+    }
+}
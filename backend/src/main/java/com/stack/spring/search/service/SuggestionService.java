@@ -0,0 +1,155 @@
+package com.stack.spring.search.service;
+
+import com.stack.spring.event.ProductChangeApplier;
+import com.stack.spring.event.ProductChangedEvent;
+import com.stack.spring.model.Product;
+import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.search.dto.Suggestion;
+import com.stack.spring.search.index.PrefixSuggester;
+import com.stack.spring.search.index.Tokenizer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Typeahead over product names, brands and categories, ranked by units in stock.
+ * <p>
+ * Lookups read an immutable {@link PrefixSuggester} without locking. Product writes
+ * are re-read by a {@link ProductChangeApplier} into a small per-product map, and a
+ * rebuild is scheduled on a single background thread; bursts of writes (e.g.
+ * checkouts) collapse into one rebuild, so suggestions trail writes by a fraction
+ * of a second.
+ */
+@Service
+public class SuggestionService {
+
+    public static final int DEFAULT_LIMIT = 8;
+    public static final int MAX_LIMIT = 20;
+
+    // a rebuild sorts every key, so writes are batched for a moment before one runs
+    private static final long REBUILD_DELAY_MS = 250;
+
+    // name keys are derived once per write, not on every rebuild
+    private record Entry(String name, String[] nameKeys, String brand, String category, long stock) {}
+
+    private final ProductChangeApplier changes;
+    private volatile Map<Integer, Entry> entries = new ConcurrentHashMap<>(); // written on the applier thread
+
+    private volatile PrefixSuggester suggester = PrefixSuggester.EMPTY;
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "suggest-rebuild");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SuggestionService(ProductRepo productRepo) {
+        this.changes = new ProductChangeApplier("suggest-index", productRepo, this::load, this::apply);
+    }
+
+    public List<Suggestion> suggest(String prefix, Integer limit) {
+        if (prefix == null || prefix.isBlank()) return List.of();
+        int k = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        return suggester.suggest(prefix.trim().toLowerCase(Locale.ROOT), k);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildFromDatabase() throws InterruptedException {
+        changes.load();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        changes.enqueue(event);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        changes.shutdown();
+        rebuilder.shutdownNow();
+    }
+
+    // a full load fills a fresh map, so a build running meanwhile never sees it half done
+    private void load(List<Product> all) {
+        Map<Integer, Entry> loaded = new ConcurrentHashMap<>();
+        all.forEach(p -> loaded.put(p.getId(), entry(p)));
+        entries = loaded;
+        scheduleBuild();
+    }
+
+    private void apply(Map<Integer, Product> changed) {
+        changed.forEach((id, p) -> {
+            if (p != null) {
+                entries.put(id, entry(p));
+            } else {
+                entries.remove(id);
+            }
+        });
+        scheduleBuild();
+    }
+
+    // builds only run on the rebuilder thread, so an older one can't replace a newer one
+    private void scheduleBuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuilder.schedule(() -> {
+                rebuildPending.set(false); // writes arriving from here on schedule another pass
+                suggester = build();
+            }, REBUILD_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static Entry entry(Product p) {
+        long stock = p.isProductAvailable() ? Math.max(p.getStockQuantity(), 0) : 0;
+        return new Entry(p.getName(), nameKeys(p.getName()), p.getBrand(), p.getCategory(), stock);
+    }
+
+    private PrefixSuggester build() {
+        PrefixSuggester.Builder b = new PrefixSuggester.Builder();
+        Map<String, long[]> brandStock = new HashMap<>();
+        Map<String, long[]> categoryStock = new HashMap<>();
+        Map<String, String> display = new HashMap<>();
+
+        entries.forEach((id, e) -> {
+            if (e.name() != null) {
+                Suggestion s = new Suggestion(e.name(), Suggestion.Type.PRODUCT, id);
+                for (String key : e.nameKeys()) b.add(key, e.stock(), s);
+            }
+            addTo(brandStock, display, e.brand(), e.stock());
+            addTo(categoryStock, display, e.category(), e.stock());
+        });
+        brandStock.forEach((key, stock) ->
+                b.add(key, stock[0], new Suggestion(display.get(key), Suggestion.Type.BRAND, null)));
+        categoryStock.forEach((key, stock) ->
+                b.add(key, stock[0], new Suggestion(display.get(key), Suggestion.Type.CATEGORY, null)));
+        return b.build();
+    }
+
+    // keyed from every word, so "pro" finds "Apple iPhone 15 Pro"
+    private static String[] nameKeys(String name) {
+        List<String> words = Tokenizer.tokens(name);
+        String[] keys = new String[words.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = String.join(" ", words.subList(i, words.size()));
+        }
+        return keys;
+    }
+
+    private static void addTo(Map<String, long[]> totals, Map<String, String> display, String value, long stock) {
+        if (value == null || value.isBlank()) return;
+        String key = value.trim().toLowerCase(Locale.ROOT);
+        totals.computeIfAbsent(key, k -> new long[1])[0] += stock;
+        display.putIfAbsent(key, value.trim());
+    }
+}
@@ -1,6 +1,7 @@
 package com.stack.spring.security.config;
 
 import com.stack.spring.security.service.AppUserDetailsService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -65,10 +66,16 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         // CORS preflight must be allowed
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        // completion of an async (streaming) response; the original request was already checked
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
 
                         // public endpoints
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/products", "/api/product/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/products/stock", "/api/products/page", "/api/products/batch")
+                        .permitAll()
+                        // ids in the body, for carts too long for a query string
+                        .requestMatchers(HttpMethod.POST, "/api/products/batch").permitAll()
 
                         // protected endpoints
                         .requestMatchers("/api/me/**").authenticated()
@@ -0,0 +1,82 @@
+package com.stack.spring.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stack.spring.dto.CacheStats;
+import com.stack.spring.dto.ProductDetail;
+import com.stack.spring.repo.ProductRepo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-through cache of {@link ProductDetail}s by id, bounded by size and time since load.
+ * <p>
+ * Code that modifies a product (admin writes, checkout) loads the entity from
+ * {@link ProductRepo} instead, so stock decisions never rest on a cached copy.
+ * Writers call {@link #evict} inside their transaction; it evicts again, automatically,
+ * once the transaction completes, so a read that raced the write and cached the
+ * old row is dropped before the writer returns.
+ */
+@Component
+public class ProductCache {
+
+    private final ProductLoader loader;
+    private final Cache<Integer, ProductDetail> cache;
+
+    public ProductCache(ProductLoader loader,
+                        @Value("${app.product-cache.max-size:10000}") long maxSize,
+                        @Value("${app.product-cache.ttl:60s}") Duration ttl) {
+        this.loader = loader;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<ProductDetail> get(int id) {
+        // misses are not cached, so unknown ids always reach the database; concurrent
+        // misses for different ids share one query (see ProductLoader)
+        return Optional.ofNullable(cache.get(id, k -> loader.load(k).orElse(null)));
+    }
+
+    /**
+     * The cached or loaded product for each of {@code ids} that exists; all misses are
+     * loaded with one query. Unlike {@link #get}, a bulk load is not atomic per id, so
+     * it can re-cache a row that a concurrent write just evicted; the TTL bounds that.
+     */
+    public Map<Integer, ProductDetail> getAll(Collection<Integer> ids) {
+        return cache.getAll(ids, loader::loadAll);
+    }
+
+    public void evict(int id) {
+        evict(List.of(id));
+    }
+
+    public void evict(Collection<Integer> ids) {
+        cache.invalidateAll(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Integer> copy = List.copyOf(ids);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    // a load still in flight for the same id finishes before this returns
+                    cache.invalidateAll(copy);
+                }
+            });
+        }
+    }
+
+    public CacheStats stats() {
+        com.github.benmanes.caffeine.cache.stats.CacheStats s = cache.stats();
+        return new CacheStats(cache.estimatedSize(), s.hitCount(), s.missCount(), s.evictionCount(), s.hitRate());
+    }
+}
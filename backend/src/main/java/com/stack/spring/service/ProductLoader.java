@@ -0,0 +1,132 @@
+package com.stack.spring.service;
+
+import com.stack.spring.dto.ProductDetail;
+import com.stack.spring.repo.ProductRepo;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coalesces product-by-id reads from concurrent callers: ids asked for within
+ * {@code app.product-loader.window} of each other (or until {@code max-batch} are
+ * waiting) are loaded with one {@code IN (...)} query, and an id asked for twice in
+ * that time is queried once.
+ * <p>
+ * Callers never join a query that has already been sent. It may have read the row
+ * before a write that the caller has already seen commit (and evicted from
+ * {@link ProductCache}), and the stale copy would then be cached again.
+ * <p>
+ * Callers block, so call it outside a transaction: a caller holding a connection while
+ * the loader waits for one could drain the pool.
+ */
+@Component
+public class ProductLoader {
+
+    private final ProductRepo productRepo;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final Duration timeout;
+    private final ScheduledExecutorService dispatcher;
+
+    private final Object lock = new Object();
+    private Map<Integer, CompletableFuture<Optional<ProductDetail>>> queued = new HashMap<>();
+
+    public ProductLoader(ProductRepo productRepo,
+                         @Value("${app.product-loader.window:1ms}") Duration window,
+                         @Value("${app.product-loader.max-batch:200}") int maxBatch,
+                         @Value("${app.product-loader.threads:4}") int threads,
+                         @Value("${app.product-loader.timeout:10s}") Duration timeout) {
+        this.productRepo = productRepo;
+        this.windowNanos = window.toNanos();
+        this.maxBatch = maxBatch;
+        this.timeout = timeout;
+        AtomicInteger n = new AtomicInteger();
+        this.dispatcher = Executors.newScheduledThreadPool(threads, r -> {
+            Thread t = new Thread(r, "product-loader-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public Optional<ProductDetail> load(int id) {
+        return await(enqueue(List.of(id)).get(id));
+    }
+
+    /** The products among {@code ids} that exist, in {@code ids} order. */
+    public Map<Integer, ProductDetail> loadAll(Collection<? extends Integer> ids) {
+        Map<Integer, ProductDetail> found = new LinkedHashMap<>();
+        enqueue(ids).forEach((id, f) -> await(f).ifPresent(p -> found.put(id, p)));
+        return found;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    private Map<Integer, CompletableFuture<Optional<ProductDetail>>> enqueue(Collection<? extends Integer> ids) {
+        Map<Integer, CompletableFuture<Optional<ProductDetail>>> mine = new LinkedHashMap<>();
+        synchronized (lock) {
+            boolean first = queued.isEmpty();
+            for (Integer id : ids) {
+                mine.put(id, queued.computeIfAbsent(id, k -> new CompletableFuture<>()));
+            }
+            if (queued.size() >= maxBatch) {
+                dispatcher.execute(this::flush);
+            } else if (first && !queued.isEmpty()) {
+                dispatcher.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        return mine;
+    }
+
+    // Sends whatever is queued (a full batch may already have taken it, then this is a no-op)
+    private void flush() {
+        Map<Integer, CompletableFuture<Optional<ProductDetail>>> batch;
+        synchronized (lock) {
+            if (queued.isEmpty()) return;
+            batch = queued;
+            queued = new HashMap<>();
+        }
+        try {
+            Map<Integer, ProductDetail> found = new HashMap<>();
+            for (ProductDetail p : productRepo.findDetailsByIdIn(batch.keySet())) {
+                found.put(p.id(), p);
+            }
+            batch.forEach((id, f) -> f.complete(Optional.ofNullable(found.get(id))));
+        } catch (RuntimeException e) {
+            batch.values().forEach(f -> f.completeExceptionally(e));
+        }
+    }
+
+    private Optional<ProductDetail> await(CompletableFuture<Optional<ProductDetail>> f) {
+        try {
+            return f.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Product lookup timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Product lookup interrupted");
+        }
+    }
+}
@@ -1,73 +1,283 @@
 package com.stack.spring.service;
 
+import com.stack.spring.catalog.service.CatalogService;
+import com.stack.spring.catalog.snapshot.CatalogSnapshot;
+import com.stack.spring.dto.FieldSet;
+import com.stack.spring.dto.ProductBatch;
+import com.stack.spring.dto.ProductDetail;
+import com.stack.spring.dto.ProductFilter;
+import com.stack.spring.dto.ProductPage;
 import com.stack.spring.dto.ProductRequest;
+import com.stack.spring.dto.ProductSort;
+import com.stack.spring.dto.ProductSummary;
+import com.stack.spring.event.ProductChangedEvent;
+import com.stack.spring.facet.service.FacetService;
+import com.stack.spring.hotstock.service.HotStockService;
+import com.stack.spring.image.service.ImageStore;
+import com.stack.spring.image.service.ImageVariantService;
+import com.stack.spring.image.service.UnusedImageCollector;
 import com.stack.spring.model.Product;
 import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.repo.ProductSpecifications;
+import com.stack.spring.search.dto.SearchResponse;
+import com.stack.spring.search.service.ProductSearch;
+import com.stack.spring.search.service.SpellingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @Service
 public class ProductService {
 
+    private static final int DEFAULT_PAGE_SIZE = 24;
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private ProductRepo productRepo;
 
-    public List<Product> getAllProducts() {
-        return productRepo.findAll();
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ImageVariantService imageVariants;
+
+    @Autowired
+    private UnusedImageCollector unusedImages;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CatalogService catalog;
+
+    @Autowired
+    private ProductSearch productSearch;
+
+    @Autowired
+    private SpellingService spelling;
+
+    @Autowired
+    private FacetService facetService;
+
+    @Autowired
+    private HotStockService hotStock;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    @Value("${app.images.max-bytes:10485760}")
+    private long maxImageBytes;
+
+    @Value("${app.products.batch-max-ids:200}")
+    private int maxBatchIds;
+
+    /** The whole catalog; without a snapshot yet, only {@code fields} are selected. */
+    public List<ProductSummary> getAllProducts(FieldSet fields) {
+        CatalogSnapshot snapshot = catalog.current();
+        return fields.view(snapshot != null ? snapshot.summaries() : readOnly(() -> productRepo.findSummaries(fields)));
     }
 
-    public Product getProductById(int id) {
-        return productRepo.findById(id)
+    /**
+     * Keyset-paginated listing: the cursor carries the last row's (sort value, id),
+     * so page N is an index range scan rather than OFFSET over N pages of rows.
+     */
+    public ProductPage listProducts(ProductFilter filter, String sortBy, String dir, Integer limit, String cursor) {
+        ProductSort sort;
+        Specification<Product> spec;
+        try {
+            sort = ProductSort.from(sortBy);
+            spec = ProductSpecifications.matching(filter);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        boolean desc = "desc".equalsIgnoreCase(dir);
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        boolean firstPage = cursor == null || cursor.isBlank();
+        Cursor c = firstPage ? null : Cursor.decode(cursor, sort, desc);
+
+        // one extra row tells us whether there is a next page, without a COUNT
+        List<ProductSummary> rows;
+        CatalogSnapshot snapshot = catalog.current();
+        if (snapshot != null) {
+            rows = snapshot.page(filter, sort, desc, c == null ? null : c.value(), c == null ? null : c.id(), pageSize + 1);
+        } else {
+            // the snapshot loads once the app is ready; until then, page in the database
+            if (c != null) spec = spec.and(ProductSpecifications.after(sort, desc, c.value(), c.id()));
+            Sort.Direction direction = desc ? Sort.Direction.DESC : Sort.Direction.ASC;
+            Sort order = Sort.by(direction, sort.property()).and(Sort.by(direction, "id"));
+            Specification<Product> where = spec;
+            rows = readOnly(() -> productRepo.findBy(where, q -> q.sortBy(order).limit(pageSize + 1).all())
+                    .stream().map(ProductSummary::of).toList());
+        }
+        // counts don't change from page to page, so only the first one carries them
+        Map<String, Map<String, Integer>> facets = firstPage ? facetService.counts(filter) : null;
+        if (rows.size() <= pageSize) {
+            return new ProductPage(rows, null, facets);
+        }
+        List<ProductSummary> page = rows.subList(0, pageSize);
+        ProductSummary last = page.get(pageSize - 1);
+        return new ProductPage(page, Cursor.encode(sort, desc, sort.valueOf(last), last.id()), facets);
+    }
+
+    /** Served from {@link ProductCache}. */
+    public ProductDetail getProductById(int id) {
+        return productCache.get(id)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Product not found: " + id
                 ));
     }
 
+    /** Products for {@code ids} in request order, from {@link ProductCache} with one query for all misses. */
+    public ProductBatch getProductsByIds(List<Integer> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids is required");
+        }
+        Set<Integer> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.size() > maxBatchIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxBatchIds + " ids per request");
+        }
+        Map<Integer, ProductDetail> found = productCache.getAll(requested);
+        List<ProductDetail> items = new ArrayList<>(found.size());
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : requested) {
+            ProductDetail p = found.get(id);
+            if (p != null) items.add(p);
+            else missing.add(id);
+        }
+        return new ProductBatch(items, missing);
+    }
+
     /**
      * Create a new product. Image is REQUIRED.
+     * The image is streamed into the store first; the DB transaction only opens once it is durable.
      */
-    @Transactional
     public Product createProduct(ProductRequest req, MultipartFile imageFile) {
         Product product = new Product();
         applyRequestToEntity(req, product);
-        applyImageToEntity(imageFile, product, true); // required
-        return productRepo.save(product);
+        UploadedImage image = storeImage(imageFile, true); // required
+        return saveWithImage(image, () -> transactionTemplate.execute(status -> {
+            image.applyTo(product);
+            Product saved = productRepo.save(product);
+            events.publishEvent(ProductChangedEvent.saved(saved));
+            return saved;
+        }));
     }
 
     /**
      * Update existing product. Image is OPTIONAL.
      */
-    @Transactional
     public Product updateProduct(int id, ProductRequest req, MultipartFile imageFile) {
-        Product existing = getProductById(id); // throws 404 if not found
-        applyRequestToEntity(req, existing);
-        applyImageToEntity(imageFile, existing, false); // optional
-        return productRepo.save(existing);
+        UploadedImage image = storeImage(imageFile, false); // optional
+        return saveWithImage(image, () -> transactionTemplate.execute(status -> {
+            // a hot product's stripes are settled into its row first, so the new stock is exact
+            int held = hotStock.prepareStockWrite(List.of(id)).getOrDefault(id, 0);
+            Product existing = findForWrite(id); // throws 404 if not found
+            if (image != null) {
+                releaseAfterCommit(existing.getImageKey());
+                image.applyTo(existing);
+            }
+            applyRequestToEntity(req, existing);
+            if (existing.getStockQuantity() < held) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Stock can't go below the " + held + " units held for unpaid orders");
+            }
+            Product saved = productRepo.save(existing);
+            productCache.evict(id);
+            events.publishEvent(ProductChangedEvent.saved(saved));
+            return saved;
+        }));
     }
 
     @Transactional
     public void deleteProduct(int id) {
         // Ensure 404 if it doesn't exist
-        getProductById(id);
+        Product existing = findForWrite(id);
         productRepo.deleteById(id);
+        productCache.evict(id);
+        events.publishEvent(ProductChangedEvent.deleted(id));
+        releaseAfterCommit(existing.getImageKey());
     }
 
-    public List<Product> searchProducts(String keyword) {
+    public SearchResponse searchProducts(String keyword, FieldSet fields) {
         if (keyword == null || keyword.trim().isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "keyword is required");
         }
-        return productRepo.searchProducts(keyword.trim());
+        List<ProductSummary> hits = productSearch.search(keyword.trim(), fields);
+        String suggestion = null;
+        if (hits.isEmpty()) {
+            // nothing as typed: answer for the corrected query so the user doesn't have to retry
+            suggestion = spelling.correct(keyword);
+            if (suggestion != null) hits = productSearch.search(suggestion, fields);
+        }
+        Map<String, Map<String, Integer>> facets = facetService.counts(hits.stream().map(ProductSummary::id).toList());
+        return new SearchResponse(fields.view(hits), suggestion, facets);
     }
 
     // ----------------- Helpers -----------------
 
+    // Read-only transaction for the database fallbacks; answers from memory take no connection
+    private <T> T readOnly(Supplier<T> read) {
+        TransactionTemplate tx = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        tx.setReadOnly(true);
+        return tx.execute(status -> read.get());
+    }
+
+    // writes load their own managed copy; the cached instance is never modified
+    private Product findForWrite(int id) {
+        return productRepo.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Product not found: " + id
+                ));
+    }
+
+    // Opaque listing cursor: base64url("sort|dir|id|value"); value last since names may contain '|'
+    private record Cursor(int id, Comparable<?> value) {
+
+        static String encode(ProductSort sort, boolean desc, Comparable<?> value, int id) {
+            String raw = sort.name() + "|" + (desc ? "desc" : "asc") + "|" + id + "|" + value;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor, ProductSort sort, boolean desc) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|", 4);
+                if (parts.length != 4 || !parts[0].equals(sort.name()) || !parts[1].equals(desc ? "desc" : "asc")) {
+                    throw new IllegalArgumentException("cursor does not match sort");
+                }
+                return new Cursor(Integer.parseInt(parts[2]), sort.parse(parts[3]));
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+    }
+
     private void applyRequestToEntity(ProductRequest req, Product product) {
         if (req == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product payload is required");
@@ -84,12 +294,21 @@ public class ProductService {
         product.setProductAvailable(req.isProductAvailable());
     }
 
-    private void applyImageToEntity(MultipartFile imageFile, Product product, boolean required) {
+    private record UploadedImage(String name, String contentType, String key) {
+        void applyTo(Product product) {
+            product.setImageName(name);
+            product.setImageType(contentType);
+            product.setImageKey(key);
+        }
+    }
+
+    // Streams the upload into the image store (hash + size limit in one pass), outside any transaction
+    private UploadedImage storeImage(MultipartFile imageFile, boolean required) {
         if (imageFile == null || imageFile.isEmpty()) {
             if (required) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Image is required");
             }
-            return; // optional image on update
+            return null; // optional image on update
         }
 
         // Basic validation (optional but recommended)
@@ -98,12 +317,37 @@ public class ProductService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only image files are allowed");
         }
 
-        try {
-            product.setImageName(imageFile.getOriginalFilename());
-            product.setImageType(contentType);
-            product.setImageData(imageFile.getBytes());
+        try (InputStream in = imageFile.getInputStream()) {
+            String key = imageStore.put(in, contentType, maxImageBytes);
+            return new UploadedImage(imageFile.getOriginalFilename(), contentType, key);
         } catch (IOException e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read image bytes");
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store image");
+        }
+    }
+
+    // If the DB write fails, don't leave a freshly stored image behind.
+    // On success, thumbnails are prepared in the background.
+    private Product saveWithImage(UploadedImage image, Supplier<Product> write) {
+        Product saved;
+        try {
+            saved = write.get();
+        } catch (RuntimeException e) {
+            if (image != null) unusedImages.release(image.key());
+            throw e;
         }
+        if (image != null) {
+            imageVariants.generateAllAsync(image.key(), image.contentType());
+        }
+        return saved;
+    }
+
+    // The old image may still be needed if the transaction rolls back
+    private void releaseAfterCommit(String imageKey) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                unusedImages.release(imageKey);
+            }
+        });
     }
 }
@@ -0,0 +1,196 @@
+package com.stack.spring.controller;
+
+import com.stack.spring.catalog.service.CatalogJsonService;
+import com.stack.spring.catalog.service.CatalogService;
+import com.stack.spring.event.ProductChangedEvent;
+import com.stack.spring.model.Product;
+import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /api/products and /api/products/stock served from the pre-rendered catalog,
+ * with the snapshot loaded from a mocked repository.
+ */
+class ProductControllerCatalogTest {
+
+    private final ProductRepo productRepo = mock(ProductRepo.class);
+    private final CatalogService catalog = new CatalogService(productRepo);
+    private ProductController controller;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(productRepo.findAll()).thenReturn(List.of(product(1, "9.99"), product(2, "19.99")));
+        catalog.rebuild();
+
+        controller = new ProductController();
+        ReflectionTestUtils.setField(controller, "catalogJson",
+                new CatalogJsonService(catalog, Jackson2ObjectMapperBuilder.json().build(), 8));
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(catalog, "shutdown");
+    }
+
+    @Test
+    void unchangedCatalogIsNotModified() throws Exception {
+        MvcResult first = mvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotBlank().doesNotContain("-gz");
+        assertThat(first.getResponse().getContentAsString()).contains("\"id\":1", "\"id\":2")
+                .doesNotContain("stockQuantity");
+
+        mvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void gzipHasItsOwnEtag() throws Exception {
+        MvcResult plain = mvc.perform(get("/api/products")).andReturn();
+        String plainEtag = plain.getResponse().getHeader(HttpHeaders.ETAG);
+
+        MvcResult gzipped = mvc.perform(get("/api/products").header(HttpHeaders.ACCEPT_ENCODING, "gzip, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+        String gzEtag = gzipped.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(gzEtag).isEqualTo(plainEtag.substring(0, plainEtag.length() - 1) + "-gz\"");
+        assertThat(gunzip(gzipped.getResponse().getContentAsByteArray()))
+                .isEqualTo(plain.getResponse().getContentAsByteArray());
+
+        mvc.perform(get("/api/products").header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, gzEtag))
+                .andExpect(status().isNotModified());
+        // the plain tag names other bytes than the gzipped ones
+        mvc.perform(get("/api/products").header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, plainEtag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void gzipRefusedByQValueIsNotSent() throws Exception {
+        mvc.perform(get("/api/products").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, not(containsString("-gz"))));
+
+        assertThat(ProductController.acceptsGzip("GZIP;q=0.5")).isTrue();
+        assertThat(ProductController.acceptsGzip("br, *;q=0.1")).isTrue();
+        assertThat(ProductController.acceptsGzip("gzip;q=0, *")).isFalse();
+        assertThat(ProductController.acceptsGzip("br, deflate")).isFalse();
+        assertThat(ProductController.acceptsGzip("gzip;q=oops")).isFalse();
+    }
+
+    @Test
+    void productChangeInvalidatesTheEtag() throws Exception {
+        String etag = mvc.perform(get("/api/products")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Product changed = product(2, "14.99");
+        when(productRepo.findAllById(any())).thenReturn(List.of(changed));
+        long before = catalog.current().version();
+        catalog.onProductChanged(ProductChangedEvent.saved(changed));
+        awaitVersionAfter(before);
+
+        MvcResult after = mvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(after.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+        assertThat(after.getResponse().getContentAsString()).contains("14.99").doesNotContain("19.99");
+    }
+
+    @Test
+    void stockChangeOnlyChangesTheStockEtag() throws Exception {
+        String catalogEtag = mvc.perform(get("/api/products")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        MvcResult stock = mvc.perform(get("/api/products/stock")).andExpect(status().isOk()).andReturn();
+        assertThat(stock.getResponse().getContentAsString()).isEqualTo("{\"1\":10,\"2\":10}");
+        String stockEtag = stock.getResponse().getHeader(HttpHeaders.ETAG);
+
+        Product sold = product(2, "19.99");
+        sold.setStockQuantity(7);
+        when(productRepo.findAllById(any())).thenReturn(List.of(sold));
+        long before = catalog.current().version();
+        catalog.onProductChanged(ProductChangedEvent.saved(sold));
+        awaitVersionAfter(before);
+
+        mvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, catalogEtag))
+                .andExpect(status().isNotModified());
+        MvcResult after = mvc.perform(get("/api/products/stock").header(HttpHeaders.IF_NONE_MATCH, stockEtag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(after.getResponse().getContentAsString()).isEqualTo("{\"1\":10,\"2\":7}");
+    }
+
+    @Test
+    void explicitStockFieldIsServedInline() throws Exception {
+        ProductService productService = new ProductService();
+        ReflectionTestUtils.setField(productService, "catalog", catalog);
+        ReflectionTestUtils.setField(controller, "productService", productService);
+
+        mvc.perform(get("/api/products").param("fields", "id,stockQuantity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andExpect(content().json("[{\"id\":1,\"stockQuantity\":10},{\"id\":2,\"stockQuantity\":10}]", true));
+    }
+
+    private void awaitVersionAfter(long version) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (catalog.current().version() <= version) {
+            assertThat(System.nanoTime()).as("snapshot applied in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static byte[] gunzip(byte[] data) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static Product product(int id, String price) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName("Item " + id);
+        p.setBrand("Brand");
+        p.setCategory("Category");
+        p.setDescription("Description");
+        p.setPrice(new BigDecimal(price));
+        p.setReleaseDate(LocalDate.of(2024, 1, 1));
+        p.setProductAvailable(true);
+        p.setStockQuantity(10);
+        return p;
+    }
+}
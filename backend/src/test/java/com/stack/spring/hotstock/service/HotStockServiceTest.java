@@ -0,0 +1,249 @@
+package com.stack.spring.hotstock.service;
+
+import com.stack.spring.model.Product;
+import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.service.ProductCache;
+import com.stack.spring.service.ProductLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Buyers run in their own committed transactions, as checkouts do. The benchmark runs
+ * with {@code -Dbenchmark=true}.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.hikari.maximum-pool-size=40",
+        "spring.jpa.show-sql=false"
+})
+@Import({HotStockService.class, ProductCache.class, ProductLoader.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HotStockServiceTest {
+
+    private static final int BUYERS = 32;
+
+    @Autowired
+    private HotStockService hotStock;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    @AfterEach
+    void tearDown() {
+        productRepo.findAll().forEach(p -> hotStock.disable(p.getId()));
+        productRepo.deleteAll();
+    }
+
+    @Test
+    void stripedSalesKeepStockExact() throws Exception {
+        int stock = 500;
+        int id = productRepo.save(product(stock)).getId();
+        hotStock.enable(id, 8);
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+
+        // eight buyers of 1-3 units until sold out, every fourth through a hold that is then
+        // taken (create-order and fulfill at once), with settles running alongside
+        AtomicBoolean done = new AtomicBoolean();
+        Thread settler = new Thread(() -> {
+            while (!done.get()) hotStock.settleAll();
+        });
+        settler.start();
+        int sold = run(8, 2_000, (qty, i) -> tx.execute(s -> {
+            List<Integer> shortIds = i % 4 == 0
+                    ? hotStock.reserveStock(Map.of(id, qty))
+                    : hotStock.decrementStock(Map.of(id, qty));
+            if (shortIds.isEmpty() && i % 4 == 0) {
+                shortIds = productRepo.consumeReserved(Map.of(id, qty));
+            }
+            if (!shortIds.isEmpty()) s.setRollbackOnly();
+            return shortIds.isEmpty() ? qty : 0;
+        }));
+        done.set(true);
+        settler.join();
+        hotStock.settleAll();
+
+        Product p = productRepo.findById(id).orElseThrow();
+        assertThat(p.getStockQuantity()).isEqualTo(stock - sold);
+        assertThat(sold).isEqualTo(stock);
+        assertThat(p.isProductAvailable()).isFalse();
+        assertThat(jdbc.queryForObject("SELECT SUM(quantity) + SUM(sold) FROM stock_stripe WHERE product_id = ?",
+                Integer.class, id)).isZero();
+    }
+
+    @Test
+    void holdsComeFromTheRowShare() {
+        int id = productRepo.save(product(100)).getId();
+        hotStock.enable(id, 4); // the row keeps 25, the stripes get 75
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+
+        List<Integer> shortIds = tx.execute(s -> hotStock.reserveStock(Map.of(id, 20)));
+
+        assertThat(shortIds).isEmpty();
+        assertThat(jdbc.queryForObject("SELECT striped_quantity FROM product WHERE id = ?", Integer.class, id))
+                .isEqualTo(75);
+        assertThat(jdbc.queryForObject("SELECT SUM(quantity) FROM stock_stripe WHERE product_id = ?", Integer.class, id))
+                .isEqualTo(75);
+    }
+
+    @Test
+    void holdsPullUnitsBackFromStripesWhenTheRowIsShort() {
+        int id = productRepo.save(product(10)).getId();
+        hotStock.enable(id, 4); // the row keeps 3
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+
+        List<Integer> shortIds = tx.execute(s -> hotStock.reserveStock(Map.of(id, 10)));
+
+        assertThat(shortIds).isEmpty();
+        assertThat(jdbc.queryForObject("SELECT reserved_quantity FROM product WHERE id = ?", Integer.class, id))
+                .isEqualTo(10);
+        List<Integer> sale = tx.execute(s -> hotStock.decrementStock(Map.of(id, 1)));
+        assertThat(sale).containsExactly(id);
+    }
+
+    @Test
+    void disableGivesStripesBackToTheRow() {
+        int id = productRepo.save(product(100)).getId();
+        hotStock.enable(id, 16);
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        tx.executeWithoutResult(s -> hotStock.decrementStock(Map.of(id, 7)));
+
+        hotStock.disable(id);
+
+        assertThat(hotStock.status()).isEmpty();
+        assertThat(jdbc.queryForObject("SELECT stock_quantity FROM product WHERE id = ?", Integer.class, id)).isEqualTo(93);
+        assertThat(jdbc.queryForObject("SELECT striped_quantity FROM product WHERE id = ?", Integer.class, id)).isZero();
+    }
+
+    @Test
+    void stockWriteAfterStripeSalesIsNotLoweredAgain() {
+        int id = productRepo.save(product(100)).getId();
+        hotStock.enable(id, 8);
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        tx.executeWithoutResult(s -> {
+            hotStock.decrementStock(Map.of(id, 7)); // from a stripe, not yet off stock
+            productRepo.reserveStock(Map.of(id, 5));
+        });
+
+        Map<Integer, Integer> reserved = tx.execute(s -> {
+            Map<Integer, Integer> held = hotStock.prepareStockWrite(List.of(id));
+            jdbc.update("UPDATE product SET stock_quantity = 50 WHERE id = ?", id);
+            return held;
+        });
+        hotStock.settleAll();
+
+        assertThat(reserved).containsExactly(Map.entry(id, 5));
+        assertThat(jdbc.queryForObject("SELECT stock_quantity FROM product WHERE id = ?", Integer.class, id)).isEqualTo(50);
+        assertThat(jdbc.queryForObject("SELECT striped_quantity FROM product WHERE id = ?", Integer.class, id))
+                .isEqualTo(jdbc.queryForObject("SELECT SUM(quantity) FROM stock_stripe WHERE product_id = ?",
+                        Integer.class, id))
+                .isPositive();
+    }
+
+    /**
+     * Single product row vs 16 stripes, each sale in a transaction that keeps its row
+     * lock for ~1ms (the rest of a checkout) before committing.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkAgainstSingleRow() throws Exception {
+        int sales = 4_000;
+        // stock to spare, so the stripes (the share the row does not keep) cover every sale
+        int plainId = productRepo.save(product(2 * sales)).getId();
+        int hotId = productRepo.save(product(2 * sales)).getId();
+        hotStock.enable(hotId, 16);
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+
+        long t0 = System.nanoTime();
+        run(BUYERS, sales, (qty, i) -> tx.execute(s -> {
+            boolean ok = productRepo.decrementStock(Map.of(plainId, 1)).isEmpty();
+            restOfCheckout();
+            return ok ? 1 : 0;
+        }));
+        long single = System.nanoTime() - t0;
+
+        t0 = System.nanoTime();
+        run(BUYERS, sales, (qty, i) -> tx.execute(s -> {
+            boolean ok = hotStock.decrementStock(Map.of(hotId, 1)).isEmpty();
+            restOfCheckout();
+            return ok ? 1 : 0;
+        }));
+        long striped = System.nanoTime() - t0;
+
+        System.out.printf("%d sales, %d buyers: single row %.0f/s, 16 stripes %.0f/s%n", sales, BUYERS,
+                sales / (single / 1e9), sales / (striped / 1e9));
+        assertThat(striped).isLessThan(single);
+    }
+
+    // Runs attempts (quantity 1-3 each) on a pool of buyers and sums the units sold
+    private static int run(int buyers, int attempts, BiFunction<Integer, Integer, Integer> buy) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(buyers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>(attempts);
+        try {
+            for (int i = 0; i < attempts; i++) {
+                int attempt = i;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return buy.apply(ThreadLocalRandom.current().nextInt(1, 4), attempt);
+                }));
+            }
+            start.countDown();
+            int sold = 0;
+            for (Future<Integer> r : results) sold += r.get();
+            return sold;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void restOfCheckout() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Product product(int stock) {
+        Product p = new Product();
+        p.setName("Hot item");
+        p.setBrand("Brand");
+        p.setCategory("Category");
+        p.setDescription("Description");
+        p.setPrice(new BigDecimal("9.99"));
+        p.setReleaseDate(LocalDate.of(2024, 1, 1));
+        p.setProductAvailable(true);
+        p.setStockQuantity(stock);
+        return p;
+    }
+}
@@ -0,0 +1,203 @@
+package com.stack.spring.payment.service;
+
+import com.stack.spring.hotstock.service.HotStockService;
+import com.stack.spring.model.Product;
+import com.stack.spring.payment.dto.CheckoutItem;
+import com.stack.spring.payment.dto.CheckoutRequest;
+import com.stack.spring.payment.repo.OrderItemRepository;
+import com.stack.spring.payment.repo.OrderPaymentRepository;
+import com.stack.spring.payment.service.CheckoutService.Outcome;
+import com.stack.spring.payment.service.CheckoutService.Submission;
+import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.service.ProductCache;
+import com.stack.spring.service.ProductLoader;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.security.Principal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Checkouts commit for real, on the batcher's worker thread, so the test itself must
+ * not hold a transaction open. A long window makes concurrent requests share a batch.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        "app.checkout.batch.window=200ms",
+        "app.checkout.batch.max-size=10"
+})
+@Import({CheckoutBatcher.class, HotStockService.class, ProductCache.class, ProductLoader.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutBatcherTest {
+
+    private static final Principal ALICE = () -> "alice";
+
+    @Autowired
+    private CheckoutBatcher batcher;
+
+    @SpyBean
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private HotStockService hotStock;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private OrderPaymentRepository orderPaymentRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @AfterEach
+    void tearDown() {
+        reset(checkoutService);
+        productRepo.findAll().forEach(p -> hotStock.disable(p.getId()));
+        orderItemRepository.deleteAll();
+        orderPaymentRepository.deleteAll();
+        productRepo.deleteAll();
+    }
+
+    @Test
+    void concurrentCheckoutsShareTransactions() throws Exception {
+        int id = productRepo.save(product(100)).getId();
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        List<Map<String, Object>> bodies = checkoutConcurrently(20, () -> batcher.checkout(request(id, 1), ALICE));
+
+        assertThat(bodies).extracting(b -> b.get("orderId")).doesNotHaveDuplicates().hasSize(20);
+        assertThat(orderPaymentRepository.count()).isEqualTo(20);
+        assertThat(stock(id)).isEqualTo(80);
+        // two batches of ten, not twenty transactions
+        assertThat(stats.getTransactionCount()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void eachSubmissionFailsOnItsOwn() {
+        int id = productRepo.save(product(5)).getId();
+
+        List<Outcome> outcomes = checkoutService.checkoutAll(List.of(
+                new Submission(request(id, 2), ALICE),
+                new Submission(request(id + 1000, 1), ALICE),  // unknown product
+                new Submission(request(id, 0), ALICE),         // invalid quantity
+                new Submission(new CheckoutRequest(), ALICE),  // no items
+                new Submission(request(id, 4), ALICE),         // only 3 left by now
+                new Submission(request(id, 1), ALICE)));
+
+        assertThat(outcomes).extracting(o -> o.error() == null ? HttpStatus.OK : o.error().getStatusCode())
+                .containsExactly(HttpStatus.OK, HttpStatus.NOT_FOUND, HttpStatus.BAD_REQUEST,
+                        HttpStatus.BAD_REQUEST, HttpStatus.BAD_REQUEST, HttpStatus.OK);
+        assertThat(outcomes.get(0).body().get("amount")).isEqualTo(new BigDecimal("19.98"));
+        assertThat(orderPaymentRepository.count()).isEqualTo(2);
+        assertThat(orderItemRepository.count()).isEqualTo(2);
+        assertThat(stock(id)).isEqualTo(2);
+    }
+
+    @Test
+    void failedBatchIsRetriedOneByOne() throws Exception {
+        int id = productRepo.save(product(10)).getId();
+        doThrow(new IllegalStateException("batch failed")).when(checkoutService).checkoutAll(any());
+
+        List<Map<String, Object>> bodies = checkoutConcurrently(4, () -> batcher.checkout(request(id, 1), ALICE));
+
+        assertThat(bodies).hasSize(4);
+        verify(checkoutService, times(4)).checkout(any(), any());
+        assertThat(orderPaymentRepository.count()).isEqualTo(4);
+        assertThat(stock(id)).isEqualTo(6);
+    }
+
+    @Test
+    void hotProductsSkipTheBatch() {
+        int id = productRepo.save(product(100)).getId();
+        hotStock.enable(id, 4);
+
+        Map<String, Object> body = batcher.checkout(request(id, 3), ALICE);
+
+        assertThat(body.get("status")).isEqualTo("PAID");
+        verify(checkoutService, never()).checkoutAll(any());
+        assertThat(hotStock.status()).singleElement().satisfies(s -> assertThat(s.getUnsettledSold()).isEqualTo(3));
+    }
+
+    private interface Buyer {
+        Map<String, Object> checkout();
+    }
+
+    private static List<Map<String, Object>> checkoutConcurrently(int buyers, Buyer buyer) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(buyers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<String, Object>>> results = new ArrayList<>(buyers);
+        try {
+            for (int i = 0; i < buyers; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return buyer.checkout();
+                }));
+            }
+            start.countDown();
+            List<Map<String, Object>> bodies = new ArrayList<>(buyers);
+            for (Future<Map<String, Object>> r : results) bodies.add(r.get());
+            return bodies;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int stock(int id) {
+        return productRepo.findById(id).orElseThrow().getStockQuantity();
+    }
+
+    private static CheckoutRequest request(int productId, int qty) {
+        CheckoutItem item = new CheckoutItem();
+        item.setProductId(productId);
+        item.setQuantity(qty);
+        CheckoutRequest req = new CheckoutRequest();
+        req.setItems(List.of(item));
+        return req;
+    }
+
+    private static Product product(int stock) {
+        Product p = new Product();
+        p.setName("Item");
+        p.setBrand("Brand");
+        p.setCategory("Category");
+        p.setDescription("Description");
+        p.setPrice(new BigDecimal("9.99"));
+        p.setReleaseDate(LocalDate.of(2024, 1, 1));
+        p.setProductAvailable(true);
+        p.setStockQuantity(stock);
+        return p;
+    }
+}
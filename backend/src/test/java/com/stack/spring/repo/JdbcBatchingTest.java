@@ -0,0 +1,84 @@
+package com.stack.spring.repo;
+
+import com.stack.spring.model.Product;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hibernate prepares one statement per JDBC batch, so a low prepare count for many rows
+ * shows the writes went out batched (with IDENTITY ids it would be one per row).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+class JdbcBatchingTest {
+
+    private static final int ROWS = 200; // 4 batches of 50
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private EntityManager em;
+
+    private Statistics stats;
+
+    @BeforeEach
+    void setUp() {
+        stats = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void saveAllInsertsInBatches() {
+        stats.clear();
+        productRepo.saveAll(products());
+        em.flush();
+
+        assertThat(stats.getEntityInsertCount()).isEqualTo(ROWS);
+        // 4 batched INSERTs + 5 nextval calls (the first block of a new sequence is short)
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void saveAllUpdatesInBatches() {
+        List<Product> saved = productRepo.saveAll(products());
+        em.flush();
+        stats.clear();
+
+        saved.forEach(p -> p.setStockQuantity(p.getStockQuantity() - 1));
+        productRepo.saveAll(saved);
+        em.flush();
+
+        assertThat(stats.getEntityUpdateCount()).isEqualTo(ROWS);
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(ROWS / 50);
+    }
+
+    private static List<Product> products() {
+        return IntStream.range(0, ROWS).mapToObj(i -> {
+            Product p = new Product();
+            p.setName("Product " + i);
+            p.setBrand("Brand");
+            p.setCategory("Category");
+            p.setDescription("Description");
+            p.setPrice(new BigDecimal("9.99"));
+            p.setReleaseDate(LocalDate.of(2024, 1, 1));
+            p.setProductAvailable(true);
+            p.setStockQuantity(10);
+            return p;
+        }).toList();
+    }
+}
@@ -0,0 +1,120 @@
+package com.stack.spring.repo;
+
+import com.stack.spring.model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Buyers run in their own committed transactions, as checkouts do, so the test
+ * itself must not hold one open.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.hikari.maximum-pool-size=16",
+        "spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductStockUpdatesTest {
+
+    private static final int STOCK = 50;
+    private static final int BUYERS = 200;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    @AfterEach
+    void tearDown() {
+        productRepo.deleteAll();
+    }
+
+    @Test
+    void parallelBuyersNeverOversell() throws Exception {
+        int id = productRepo.save(product(STOCK)).getId();
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < BUYERS; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return tx.execute(s -> productRepo.decrementStock(Map.of(id, 1)).isEmpty());
+                }));
+            }
+            start.countDown();
+            int sold = 0;
+            for (Future<Boolean> r : results) {
+                if (r.get()) sold++;
+            }
+            assertThat(sold).isEqualTo(STOCK);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Product p = productRepo.findById(id).orElseThrow();
+        assertThat(p.getStockQuantity()).isZero();
+        assertThat(p.isProductAvailable()).isFalse();
+    }
+
+    @Test
+    void shortItemRollsBackTheWholeOrder() {
+        int plenty = productRepo.save(product(10)).getId();
+        int scarce = productRepo.save(product(1)).getId();
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+
+        List<Integer> failed = tx.execute(s -> {
+            List<Integer> f = productRepo.decrementStock(Map.of(plenty, 3, scarce, 2));
+            if (!f.isEmpty()) s.setRollbackOnly();
+            return f;
+        });
+
+        assertThat(failed).containsExactly(scarce);
+        assertThat(productRepo.findById(plenty).orElseThrow().getStockQuantity()).isEqualTo(10);
+        assertThat(productRepo.findById(scarce).orElseThrow().getStockQuantity()).isEqualTo(1);
+    }
+
+    @Test
+    void availabilityStaysOnWhileStockRemains() {
+        int id = productRepo.save(product(5)).getId();
+        new TransactionTemplate(txManager).executeWithoutResult(s -> productRepo.decrementStock(Map.of(id, 4)));
+
+        Product p = productRepo.findById(id).orElseThrow();
+        assertThat(p.getStockQuantity()).isEqualTo(1);
+        assertThat(p.isProductAvailable()).isTrue();
+    }
+
+    private static Product product(int stock) {
+        Product p = new Product();
+        p.setName("Hot item");
+        p.setBrand("Brand");
+        p.setCategory("Category");
+        p.setDescription("Description");
+        p.setPrice(new BigDecimal("9.99"));
+        p.setReleaseDate(LocalDate.of(2024, 1, 1));
+        p.setProductAvailable(true);
+        p.setStockQuantity(stock);
+        return p;
+    }
+}
@@ -0,0 +1,117 @@
+package com.stack.spring.search.service;
+
+import com.stack.spring.dto.FieldSet;
+import com.stack.spring.dto.ProductSummary;
+import com.stack.spring.model.Product;
+import com.stack.spring.repo.ProductRepo;
+import com.stack.spring.search.config.PostgresSearchSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code app.search.mode=postgres} against a real database, which H2 can't stand in for
+ * (tsvector, pg_trgm). Opt-in: run with
+ * {@code -Dpostgres.url=jdbc:postgresql://localhost:5432/<db>} and, if needed,
+ * {@code -Dpostgres.user} / {@code -Dpostgres.password}. The schema changes are the
+ * idempotent ones the app makes at startup; the test rows are rolled back.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=${postgres.url}",
+        "spring.datasource.username=${postgres.user:postgres}",
+        "spring.datasource.password=${postgres.password:postgres}",
+        "spring.jpa.hibernate.ddl-auto=update",
+        "spring.jpa.show-sql=false",
+        "app.search.mode=postgres"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PostgresSearchSchema.class, PostgresProductSearch.class})
+@EnabledIfSystemProperty(named = "postgres.url", matches = ".+")
+class PostgresProductSearchTest {
+
+    @Autowired
+    private PostgresProductSearch search;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    // made-up words, so rows already in the database don't match
+    private int phone;
+    private int buds;
+    private int charger;
+
+    @BeforeEach
+    void setUp() {
+        List<Product> saved = productRepo.saveAllAndFlush(List.of(
+                product("Quixotron Phone", "Flagship handset"),
+                product("Quixotron Buds", "Wireless earbuds"),
+                product("Velmora Charger", "Works with every Quixotron phone")));
+        phone = saved.get(0).getId();
+        buds = saved.get(1).getId();
+        charger = saved.get(2).getId();
+    }
+
+    @Test
+    void schemaIsCreated() {
+        assertThat(jdbc.queryForList("SELECT indexname FROM pg_indexes WHERE tablename = 'product'", String.class))
+                .contains("idx_product_search_vector", "idx_product_name_trgm");
+    }
+
+    @Test
+    void everyTermMustPrefixMatch() {
+        assertThat(ids("quix pho")).contains(phone, charger).doesNotContain(buds);
+        assertThat(ids("quixo velm")).containsExactly(charger);
+    }
+
+    @Test
+    void nameMatchesRankAboveDescriptionMatches() {
+        List<Integer> ids = ids("Quixotron");
+
+        assertThat(ids).contains(phone, buds, charger);
+        assertThat(ids.indexOf(charger)).isGreaterThan(ids.indexOf(phone)).isGreaterThan(ids.indexOf(buds));
+    }
+
+    @Test
+    void substringOfNameMatchesThroughTrigramLike() {
+        // not a prefix of any word, so only the LIKE on lower(name) can match
+        assertThat(ids("xotron")).contains(phone, buds).doesNotContain(charger);
+        assertThat(ids("otron bu")).containsExactly(buds);
+    }
+
+    @Test
+    void likeWildcardsInTheKeywordAreLiteral() {
+        assertThat(ids("quixo_ron")).isEmpty();
+        assertThat(ids("qui%ron")).isEmpty();
+    }
+
+    private List<Integer> ids(String keyword) {
+        return search.search(keyword, FieldSet.ALL).stream().map(ProductSummary::id).toList();
+    }
+
+    private static Product product(String name, String description) {
+        Product p = new Product();
+        p.setName(name);
+        p.setBrand("Brand");
+        p.setCategory("Category");
+        p.setDescription(description);
+        p.setPrice(new BigDecimal("9.99"));
+        p.setReleaseDate(LocalDate.of(2024, 1, 1));
+        p.setProductAvailable(true);
+        p.setStockQuantity(10);
+        return p;
+    }
+}
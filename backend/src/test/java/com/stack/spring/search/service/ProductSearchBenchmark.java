@@ -0,0 +1,114 @@
+package com.stack.spring.search.service;
+
+import com.stack.spring.catalog.service.CatalogService;
+import com.stack.spring.dto.FieldSet;
+import com.stack.spring.dto.ProductSummary;
+import com.stack.spring.model.Product;
+import com.stack.spring.repo.ProductRepo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH: the in-memory index against the JPQL LIKE scan it replaced ({@link LikeProductSearch}
+ * on {@link ProductRepo}), over the catalog {@link ProductSearchIndexTest} generates, in an
+ * in-memory H2. Run with {@code mvn -Pbenchmark test-compile exec:exec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    @Param("20000")
+    public int products;
+
+    // an exact word, a brand, and a prefix only the index treats as one
+    @Param({"kettle", "globex", "prem"})
+    public String keyword;
+
+    private ConfigurableApplicationContext context;
+    private CatalogService catalog;
+    private ProductSearchIndex index;
+    private ProductSearch like;
+    private TransactionTemplate readOnly;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        // arguments, so they win over application.properties
+        context = new SpringApplicationBuilder(Database.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:search-benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.main.banner-mode=off");
+        ProductRepo productRepo = context.getBean(ProductRepo.class);
+        productRepo.saveAll(ProductSearchIndexTest.products(products));
+
+        catalog = new CatalogService(productRepo);
+        catalog.rebuild();
+        index = new ProductSearchIndex(productRepo, catalog, 50);
+        index.rebuild();
+        like = new LikeProductSearch(productRepo);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        index.shutdown();
+        ReflectionTestUtils.invokeMethod(catalog, "shutdown");
+        context.close();
+    }
+
+    @Benchmark
+    public List<ProductSummary> index() {
+        return index.search(keyword, FieldSet.ALL);
+    }
+
+    @Benchmark
+    public List<ProductSummary> like() {
+        // the result is streamed, so it needs the open EntityManager a request has
+        return readOnly.execute(s -> like.search(keyword, FieldSet.ALL));
+    }
+
+    // just the product table and its repository, not the whole app
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+            JdbcTemplateAutoConfiguration.class, HibernateJpaAutoConfiguration.class})
+    @EnableJpaRepositories(basePackageClasses = ProductRepo.class)
+    @EntityScan(basePackageClasses = Product.class)
+    static class Database {
+    }
+}
@@ -0,0 +1,118 @@
+package com.stack.spring.search.service;
+
+import com.stack.spring.catalog.service.CatalogService;
+import com.stack.spring.dto.FieldSet;
+import com.stack.spring.dto.ProductSummary;
+import com.stack.spring.model.Product;
+import com.stack.spring.repo.ProductRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The in-memory index against the LIKE scan it replaced, over the same generated catalog.
+ * Rows are committed, since the snapshot loads on its own thread. The throughput
+ * comparison is {@link ProductSearchBenchmark}.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductSearchIndexTest {
+
+    // no word is a substring of another, so a LIKE on a whole word finds what the index finds
+    private static final String[] ADJECTIVES = {"compact", "rugged", "wireless", "vintage", "smart", "silent", "portable", "deluxe"};
+    private static final String[] NOUNS = {"kettle", "lamp", "speaker", "backpack", "blender", "monitor", "keyboard", "camera", "drone", "jacket"};
+    private static final String[] BRANDS = {"Acme", "Globex", "Initech", "Umbrella", "Hooli"};
+    private static final String[] CATEGORIES = {"Kitchen", "Audio", "Outdoor", "Office", "Home"};
+    private static final String[] FILLER = {"durable", "lightweight", "elegant", "reliable", "classic", "premium", "everyday", "modern"};
+
+    private static final List<String> KEYWORDS = List.of("kettle", "wireless", "globex", "outdoor", "premium", "drone");
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    private CatalogService catalog;
+
+    @AfterEach
+    void tearDown() {
+        if (catalog != null) ReflectionTestUtils.invokeMethod(catalog, "shutdown");
+        productRepo.deleteAllInBatch();
+    }
+
+    @Test
+    void indexFindsWhatLikeFindsForWholeWords() throws Exception {
+        productRepo.saveAll(products(300));
+        ProductSearch index = index(Integer.MAX_VALUE);
+        ProductSearch like = new LikeProductSearch(productRepo);
+
+        for (String keyword : KEYWORDS) {
+            assertThat(ids(index.search(keyword, FieldSet.ALL)))
+                    .as(keyword)
+                    .isNotEmpty()
+                    .containsExactlyInAnyOrderElementsOf(ids(like.search(keyword, FieldSet.ALL)));
+        }
+    }
+
+    @Test
+    void limitKeepsTheBestHits() throws Exception {
+        productRepo.saveAll(products(300));
+        List<Integer> all = ids(index(Integer.MAX_VALUE).search("premium", FieldSet.ALL));
+
+        assertThat(all).hasSizeGreaterThan(5);
+        assertThat(ids(index(5).search("premium", FieldSet.ALL))).isEqualTo(all.subList(0, 5));
+    }
+
+    private ProductSearch index(int limit) throws InterruptedException {
+        if (catalog == null) {
+            catalog = new CatalogService(productRepo);
+            catalog.rebuild();
+        }
+        ProductSearchIndex index = new ProductSearchIndex(productRepo, catalog, limit);
+        index.rebuild();
+        return index;
+    }
+
+    private static List<Integer> ids(List<ProductSummary> hits) {
+        return hits.stream().map(ProductSummary::id).toList();
+    }
+
+    static List<Product> products(int count) {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product p = new Product();
+            p.setName(pick(random, ADJECTIVES) + " " + pick(random, NOUNS) + " " + i);
+            p.setBrand(pick(random, BRANDS));
+            p.setCategory(pick(random, CATEGORIES));
+            StringBuilder description = new StringBuilder();
+            for (int w = 0; w < 12; w++) {
+                description.append(pick(random, w % 3 == 0 ? NOUNS : FILLER)).append(' ');
+            }
+            p.setDescription(description.toString().trim());
+            p.setPrice(new BigDecimal("9.99"));
+            p.setReleaseDate(LocalDate.of(2024, 1, 1));
+            p.setProductAvailable(true);
+            p.setStockQuantity(10);
+            products.add(p);
+        }
+        return products;
+    }
+
+    private static String pick(Random random, String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+}
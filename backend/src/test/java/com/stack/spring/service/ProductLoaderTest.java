@@ -0,0 +1,141 @@
+package com.stack.spring.service;
+
+import com.stack.spring.dto.ProductDetail;
+import com.stack.spring.repo.ProductRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs against a mocked repository that records the id set of every query it gets.
+ */
+class ProductLoaderTest {
+
+    private final ProductRepo productRepo = mock(ProductRepo.class);
+    private final List<Set<Integer>> queries = Collections.synchronizedList(new ArrayList<>());
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private ProductLoader loader;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        if (loader != null) loader.shutdown();
+    }
+
+    @Test
+    void concurrentLoadsWithinTheWindowShareOneQuery() throws Exception {
+        loader = loader(Duration.ofMillis(200), 100);
+        answerWithExisting(Set.of(1, 2, 3));
+
+        List<Optional<ProductDetail>> results = concurrently(List.of(1, 2, 3, 2, 1), loader::load);
+
+        assertThat(results).extracting(r -> r.orElseThrow().id()).containsExactly(1, 2, 3, 2, 1);
+        assertThat(queries).containsExactly(Set.of(1, 2, 3));
+    }
+
+    @Test
+    void fullBatchIsSentWithoutWaitingForTheWindow() throws Exception {
+        loader = loader(Duration.ofSeconds(30), 3);
+        answerWithExisting(Set.of(1, 2, 3, 4, 5, 6));
+
+        long start = System.nanoTime();
+        concurrently(List.of(1, 2, 3), loader::load);
+        concurrently(List.of(4, 5, 6), loader::load);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(10));
+        assertThat(queries).containsExactly(Set.of(1, 2, 3), Set.of(4, 5, 6));
+    }
+
+    @Test
+    void failedQueryFailsEveryWaiter() throws Exception {
+        loader = loader(Duration.ofMillis(200), 100);
+        IllegalStateException failure = new IllegalStateException("database down");
+        when(productRepo.findDetailsByIdIn(any())).thenAnswer(inv -> {
+            queries.add(Set.copyOf(inv.<Collection<Integer>>getArgument(0)));
+            throw failure;
+        });
+
+        List<Future<Optional<ProductDetail>>> waiters = submitConcurrently(List.of(1, 2, 3), loader::load);
+
+        for (Future<Optional<ProductDetail>> waiter : waiters) {
+            assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class).cause().isSameAs(failure);
+        }
+        assertThat(queries).hasSize(1);
+    }
+
+    @Test
+    void missingIdsAreLeftOut() {
+        loader = loader(Duration.ofMillis(1), 100);
+        answerWithExisting(Set.of(2, 4));
+
+        Map<Integer, ProductDetail> found = loader.loadAll(List.of(4, 1, 2, 3));
+
+        assertThat(found.keySet()).containsExactly(4, 2);
+        assertThat(loader.load(1)).isEmpty();
+    }
+
+    private ProductLoader loader(Duration window, int maxBatch) {
+        return new ProductLoader(productRepo, window, maxBatch, 2, Duration.ofSeconds(5));
+    }
+
+    private void answerWithExisting(Set<Integer> existing) {
+        when(productRepo.findDetailsByIdIn(any())).thenAnswer(inv -> {
+            Collection<Integer> ids = inv.getArgument(0);
+            queries.add(Set.copyOf(ids));
+            return ids.stream().filter(existing::contains).map(ProductLoaderTest::detail).toList();
+        });
+    }
+
+    private interface Load {
+        Optional<ProductDetail> load(int id);
+    }
+
+    private List<Optional<ProductDetail>> concurrently(List<Integer> ids, Load load) throws Exception {
+        List<Optional<ProductDetail>> results = new ArrayList<>(ids.size());
+        for (Future<Optional<ProductDetail>> f : submitConcurrently(ids, load)) {
+            results.add(f.get(5, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    private List<Future<Optional<ProductDetail>>> submitConcurrently(List<Integer> ids, Load load) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<ProductDetail>>> futures = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            futures.add(callers.submit(() -> {
+                start.await();
+                return load.load(id);
+            }));
+        }
+        start.countDown();
+        return futures;
+    }
+
+    private static ProductDetail detail(int id) {
+        return new ProductDetail(id, "Item " + id, "Description", "Brand", new BigDecimal("9.99"), "Category",
+                LocalDate.of(2024, 1, 1), true, 10, null, null, null);
+    }
+}
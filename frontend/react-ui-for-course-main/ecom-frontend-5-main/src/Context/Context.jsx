@@ -72,10 +72,16 @@ export const AppProvider = ({ children }) => {
     localStorage.setItem("cart", JSON.stringify([]));
   };
 
+  // The catalog body leaves stock out (it changes with every sale); it comes
+  // from /products/stock and is merged in here.
   const refreshData = async () => {
     try {
-      const response = await axios.get("/products");
-      setData(response.data || []);
+      const [products, stock] = await Promise.all([
+        axios.get("/products"),
+        axios.get("/products/stock"),
+      ]);
+      const levels = stock.data || {};
+      setData((products.data || []).map((p) => ({ ...p, stockQuantity: levels[p.id] ?? 0 })));
     } catch (error) {
       setIsError(error?.message || "Failed to load products");
     }
@@ -3,6 +3,9 @@ import AppContext from "../Context/Context";
 import unplugged from "../assets/unplugged.png";
 import API from "../axios";
 
+// app.products.batch-max-ids on the server; more ids in one request are refused
+const BATCH_MAX_IDS = 200;
+
 const Cart = () => {
   const { cart, removeFromCart, clearCart, updateQuantity, refreshData } =
     useContext(AppContext);
@@ -18,7 +21,7 @@ const Cart = () => {
 
   /**
    * ✅ PERFORMANCE FIX:
-   * - Keep ONLY 1 request to /products
+   * - ONE request to /products/batch per 200 ids in the cart (the server's cap)
    * - DO NOT fetch per-product images as blobs
    * - Set imageUrl directly to: `${apiBase}/product/{id}/image`
    */
@@ -27,9 +30,21 @@ const Cart = () => {
       setLoading(true);
 
       try {
-        // One request: fetch products so we can validate cart items and enrich details
-        const res = await API.get("/products");
-        const products = res.data || [];
+        // Fetch the cart's products so we can validate items and enrich details:
+        // one request per BATCH_MAX_IDS ids, the most the server takes at once
+        const ids = (cart || []).map((it) => it.id);
+        const chunks = [];
+        for (let i = 0; i < ids.length; i += BATCH_MAX_IDS) {
+          chunks.push(ids.slice(i, i + BATCH_MAX_IDS));
+        }
+        const responses = await Promise.all(
+          chunks.map((chunk) =>
+            chunk.length <= 100
+              ? API.get("/products/batch", { params: { ids: chunk.join(",") } })
+              : API.post("/products/batch", chunk) // too long for a URL
+          )
+        );
+        const products = responses.flatMap((res) => res.data?.items || []);
 
         const byId = new Map(products.map((p) => [p.id, p]));
 
@@ -42,7 +57,7 @@ const Cart = () => {
           return {
             ...p,
             quantity: it.quantity || 1,
-            imageUrl: `${apiBase}/product/${it.id}/image`,
+            imageUrl: `${apiBase}/product/${it.id}/image?variant=thumb`,
           };
         });
 
@@ -52,7 +67,7 @@ const Cart = () => {
         // Fallback: show cart as-is (still attach image URL so UI works)
         const fallback = (cart || []).map((it) => ({
           ...it,
-          imageUrl: `${apiBase}/product/${it.id}/image`,
+          imageUrl: `${apiBase}/product/${it.id}/image?variant=thumb`,
         }));
         setCartItems(fallback);
       } finally {
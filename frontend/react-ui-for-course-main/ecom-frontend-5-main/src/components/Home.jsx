@@ -32,7 +32,7 @@ const Home = ({ selectedCategory }) => {
     if (Array.isArray(data) && data.length > 0) {
       const updated = data.map((product) => ({
         ...product,
-        imageUrl: `${apiBase}/product/${product.id}/image`,
+        imageUrl: `${apiBase}/product/${product.id}/image?variant=card`,
       }));
       setProducts(updated);
     } else {
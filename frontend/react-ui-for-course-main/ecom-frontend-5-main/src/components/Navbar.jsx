@@ -17,6 +17,7 @@ const Navbar = ({ onSelectCategory, onSearch }) => {
   const [input, setInput] = useState("");
   const [searchResults, setSearchResults] = useState([]);
   const [noResults, setNoResults] = useState(false);
+  const [suggestion, setSuggestion] = useState(null);
   const [searchFocused, setSearchFocused] = useState(false);
   const [showSearchResults, setShowSearchResults] = useState(false);
 
@@ -41,8 +42,9 @@ const Navbar = ({ onSelectCategory, onSearch }) => {
       setShowSearchResults(true);
       try {
         const response = await API.get(`/product/search?keyword=${value}`);
-        setSearchResults(response.data);
-        setNoResults(response.data.length === 0);
+        setSearchResults(response.data.items);
+        setSuggestion(response.data.suggestion);
+        setNoResults(response.data.items.length === 0);
         console.log(response.data);
       } catch (error) {
         console.error("Error searching:", error);
@@ -50,6 +52,7 @@ const Navbar = ({ onSelectCategory, onSearch }) => {
     } else {
       setShowSearchResults(false);
       setSearchResults([]);
+      setSuggestion(null);
       setNoResults(false);
     }
   };
@@ -165,6 +168,11 @@ const Navbar = ({ onSelectCategory, onSearch }) => {
                 />
                 {showSearchResults && (
                   <ul className="list-group">
+                    {suggestion && (
+                      <li className="list-group-item text-muted">
+                        Showing results for <em>{suggestion}</em>
+                      </li>
+                    )}
                     {searchResults.length > 0 ? (
                       searchResults.map((result) => (
                         <li key={result.id} className="list-group-item">